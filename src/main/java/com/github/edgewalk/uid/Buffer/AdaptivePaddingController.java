@@ -0,0 +1,128 @@
+package com.github.edgewalk.uid.Buffer;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根据消费速度调整填充阈值和主动填充间隔的控制器
+ * 每次 {@link #tick()} 根据 cursor 的前进量计算消费速度的EWMA(速度上升时快速跟上,下降时缓慢衰减):
+ * 阈值    = 速度 * 上一次填充耗时 * 2,限制在 [minPaddingFactor, maxPaddingFactor] 百分比之间,
+ * 低于阈值时消费线程立即触发填充,所以阈值只需要覆盖填充期间的消费,
+ * 负载上升时提前触发填充,空闲时降低阈值减少填充次数
+ * 主动填充间隔 = 填满的buffer被消费到阈值所需的时间,限制在 [检查间隔, maxInterval] 之间,
+ * 预计下一个检查间隔内会低于阈值,或者距离上次填充超过间隔时主动触发填充
+ * tick 由定时任务调用,同时只能有一个线程调用
+ */
+public class AdaptivePaddingController {
+
+	//速度上升和下降时的EWMA系数
+	private static final double ALPHA_UP = 0.5D;
+	private static final double ALPHA_DOWN = 0.2D;
+	//阈值覆盖填充耗时的倍数
+	private static final int SAFETY_FACTOR = 2;
+
+	private final RingBuffer ringBuffer;
+	private final BufferPaddingExecutor bufferPaddingExecutor;
+	private final int minPaddingFactor;
+	private final int maxPaddingFactor;
+	private final long tickNanos;
+	private final long maxIntervalNanos;
+
+	//上一次检查时的 cursor 和时间
+	private long lastCursor;
+	private long lastTickTime;
+	//上一次填充结束的时间
+	private volatile long lastPaddedTime;
+
+	//控制器状态,每次检查后更新
+	private volatile double rate;
+	private volatile long intervalNanos;
+
+	/**
+	 * @param ringBuffer            被控制的buffer
+	 * @param bufferPaddingExecutor buffer的填充器
+	 * @param minPaddingFactor      阈值的最小百分比
+	 * @param maxPaddingFactor      阈值的最大百分比
+	 * @param tick                  检查间隔
+	 * @param maxInterval           最大的主动填充间隔
+	 * @param unit                  时间单位
+	 */
+	public AdaptivePaddingController(RingBuffer ringBuffer, BufferPaddingExecutor bufferPaddingExecutor, int minPaddingFactor,
+									 int maxPaddingFactor, long tick, long maxInterval, TimeUnit unit) {
+		Assert.isTrue(minPaddingFactor > 0 && minPaddingFactor <= maxPaddingFactor && maxPaddingFactor < 100,
+				"Padding factors must be in (0, 100) and min must not exceed max");
+		Assert.isTrue(tick > 0 && tick <= maxInterval, "Tick must be positive and not exceed the max interval");
+		this.ringBuffer = ringBuffer;
+		this.bufferPaddingExecutor = bufferPaddingExecutor;
+		this.minPaddingFactor = minPaddingFactor;
+		this.maxPaddingFactor = maxPaddingFactor;
+		this.tickNanos = unit.toNanos(tick);
+		this.maxIntervalNanos = unit.toNanos(maxInterval);
+		this.intervalNanos = maxIntervalNanos;
+		this.lastCursor = ringBuffer.getCursor();
+		this.lastTickTime = System.nanoTime();
+		this.lastPaddedTime = lastTickTime;
+		bufferPaddingExecutor.addPaddedListener(() -> lastPaddedTime = System.nanoTime());
+	}
+
+	/**
+	 * 采样消费速度,调整阈值和主动填充间隔,需要时触发填充
+	 */
+	public void tick() {
+		long now = System.nanoTime();
+		long cursor = ringBuffer.getCursor();
+		// 可调整容量的buffer换下旧buffer时 cursor 之和会变小,本次按没有消费计算
+		long consumed = Math.max(0L, cursor - lastCursor);
+		double sample = consumed * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1L, now - lastTickTime);
+		lastCursor = cursor;
+		lastTickTime = now;
+		double currentRate = rate + (sample > rate ? ALPHA_UP : ALPHA_DOWN) * (sample - rate);
+		rate = currentRate;
+
+		int bufferSize = ringBuffer.getBufferSize();
+		double horizonSeconds = (double) bufferPaddingExecutor.getLastPaddingNanos() / TimeUnit.SECONDS.toNanos(1);
+		long threshold = (long) Math.ceil(currentRate * horizonSeconds * SAFETY_FACTOR);
+		threshold = Math.max((long) bufferSize * minPaddingFactor / 100, Math.min((long) bufferSize * maxPaddingFactor / 100, threshold));
+		ringBuffer.setPaddingThreshold((int) Math.max(1L, threshold));
+
+		long interval = currentRate <= 0D ? maxIntervalNanos
+				: (long) ((bufferSize - threshold) / currentRate * TimeUnit.SECONDS.toNanos(1));
+		interval = Math.max(tickNanos, Math.min(maxIntervalNanos, interval));
+		intervalNanos = interval;
+
+		// 预计下一个检查间隔内会低于阈值,或者距离上次填充超过间隔,主动填充
+		long rest = ringBuffer.getTail() - cursor;
+		double expected = currentRate * tickNanos / TimeUnit.SECONDS.toNanos(1);
+		if (rest - expected < threshold || now - lastPaddedTime >= interval) {
+			bufferPaddingExecutor.asyncPadding();
+		}
+	}
+
+	/**
+	 * 消费速度的EWMA,单位: 个/秒
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	/**
+	 * 当前的填充阈值
+	 */
+	public int getPaddingThreshold() {
+		return ringBuffer.getPaddingThreshold();
+	}
+
+	/**
+	 * 当前的主动填充间隔,单位: 毫秒
+	 */
+	public long getIntervalMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptivePaddingController [rate=" + rate + ", paddingThreshold=" + getPaddingThreshold()
+				+ ", intervalMillis=" + getIntervalMillis() + "]";
+	}
+}
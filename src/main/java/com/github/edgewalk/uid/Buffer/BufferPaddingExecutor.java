@@ -15,8 +15,11 @@
  */
 package com.github.edgewalk.uid.Buffer;
 
+import com.github.edgewalk.uid.time.SystemTimeSource;
+import com.github.edgewalk.uid.time.TimeSource;
 import com.github.edgewalk.uid.utils.NamingThreadFactory;
 import com.github.edgewalk.uid.utils.PaddedAtomicLong;
+import com.github.edgewalk.uid.utils.TickUnit;
 import lombok.Getter;
 import lombok.Setter;
 import org.slf4j.Logger;
@@ -25,43 +28,78 @@ import org.springframework.util.Assert;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
 /**
  * 填充 {@link RingBuffer} 的填充器
  *  2种执行器: 调度式填充器,普通填充器
+ *  普通填充由专用的 {@link PaddingWorker} 线程执行,填充请求只设置一个标记,填充开始之前的多次请求合并为一次填充
  *
  */
 public class BufferPaddingExecutor {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RingBuffer.class);
 
-	//普通模式线程名
-	private static final String WORKER_NAME = "RingBuffer-Padding-Worker";
 	//调度默认线程名
 	private static final String SCHEDULE_NAME = "RingBuffer-Padding-Schedule";
 	//默认调度间隔 (5分钟)
-	private static final long DEFAULT_SCHEDULE_INTERVAL = 5 * 60L; // 5 minutes
+	public static final long DEFAULT_SCHEDULE_INTERVAL = 5 * 60L; // 5 minutes
+	//关闭时等待填充结束的秒数
+	private static final long TERMINATION_TIMEOUT = 5L;
 	//标记当前是否在padding操作
 	@Getter
 	private final AtomicBoolean running;
 
-	//最后一次消费uid的时间(可能是未来时间)
-	private final PaddedAtomicLong lastSecond;
+	//最后一次消费uid的时间(可能是未来时间),单位是 tickUnit
+	private final PaddedAtomicLong lastTick;
+	//时间戳的单位,每次填充一个单位内的uid
+	private final TickUnit tickUnit;
+	//时钟源,与生成器给uid打时间戳的时钟相同,领先上限和领先量都相对于它计算
+	private final TimeSource timeSource;
 
 	private final RingBuffer ringBuffer;
-	//buffered uid 提供者
+	//buffered uid 提供者,与 primitiveUidProvider 二选一
 	private final BufferedUidProvider uidProvider;
+	private final PrimitiveUidProvider primitiveUidProvider;
 
 	//普通模式线程
-	private final ExecutorService bufferPadExecutors;
+	private final PaddingWorker paddingWorker;
+
+	//是否请求了填充,请求已经存在时消费线程只需要一次volatile读
+	private final AtomicBoolean paddingRequested = new AtomicBoolean(false);
 
 	//调度默认线程
 	private final ScheduledExecutorService bufferPadSchedule;
 
+	//填充时复用的uid数组
+	private long[] paddingUids;
+
+	//并行填充时每个单位复用的uid数组和实际的uid数量
+	private final long[][] paddingSlices;
+	private final int[] sliceSizes;
+	//并行填充时每个单位的任务,创建一次重复使用,本轮第一个单位在分发之前写入
+	private final IntConsumer sliceTask = this::provideSlice;
+	private long firstSliceTick;
+
+	//每次填充结束后的回调
+	private final List<Runnable> paddedListeners = new CopyOnWriteArrayList<>();
+
+	//上一次填充的耗时(纳秒)
+	@Getter
+	private volatile long lastPaddingNanos;
+
+	//lastTick 最多领先系统时间的单位数,0表示不限制
+	private long maxLookAheadTicks;
+	//达到领先上限后,到这个时间(时钟源的毫秒)之前不再由填充线程填充
+	private volatile long throttledUntil;
+	//达到领先上限的次数
+	private final AtomicLong throttles = new AtomicLong();
+
 	//调度间隔时间
 	@Setter
 	private long scheduleInterval = DEFAULT_SCHEDULE_INTERVAL;
@@ -73,14 +111,49 @@ public class BufferPaddingExecutor {
 
 
 	public BufferPaddingExecutor(RingBuffer ringBuffer, BufferedUidProvider uidProvider, boolean usingSchedule) {
+		this(ringBuffer, uidProvider, usingSchedule, new PaddingWorker());
+	}
+
+	/**
+	 * @param paddingWorker 执行填充的线程,多个填充器(例如 {@link ShardedRingBuffer} 的分片)可以共用同一个线程
+	 */
+	public BufferPaddingExecutor(RingBuffer ringBuffer, BufferedUidProvider uidProvider, boolean usingSchedule, PaddingWorker paddingWorker) {
+		this(ringBuffer, uidProvider, null, 0, TickUnit.SECOND, new SystemTimeSource(), usingSchedule, paddingWorker);
+	}
+
+	/**
+	 * 使用原始类型的提供者,uid直接写入复用的数组,填充过程不分配对象
+	 *
+	 * @param uidsPerTick   每个单位提供的uid数量,即复用数组的长度
+	 * @param tickUnit      提供者使用的时间戳单位
+	 * @param timeSource    提供者使用的时钟源
+	 * @param paddingWorker 执行填充的线程
+	 */
+	public BufferPaddingExecutor(RingBuffer ringBuffer, PrimitiveUidProvider uidProvider, int uidsPerTick, TickUnit tickUnit,
+								 TimeSource timeSource, boolean usingSchedule, PaddingWorker paddingWorker) {
+		this(ringBuffer, null, uidProvider, uidsPerTick, tickUnit, timeSource, usingSchedule, paddingWorker);
+		Assert.notNull(uidProvider, "Uid provider can't be null!");
+		Assert.isTrue(uidsPerTick > 0, "Uids per tick must be positive!");
+	}
+
+	private BufferPaddingExecutor(RingBuffer ringBuffer, BufferedUidProvider uidProvider, PrimitiveUidProvider primitiveUidProvider,
+								  int uidsPerTick, TickUnit tickUnit, TimeSource timeSource, boolean usingSchedule, PaddingWorker paddingWorker) {
+		Assert.notNull(tickUnit, "Tick unit can't be null!");
+		Assert.notNull(timeSource, "Time source can't be null!");
 		this.running = new AtomicBoolean(false);
-		this.lastSecond = new PaddedAtomicLong(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+		this.tickUnit = tickUnit;
+		this.timeSource = timeSource;
+		this.lastTick = new PaddedAtomicLong(currentTick());
 		this.ringBuffer = ringBuffer;
 		this.uidProvider = uidProvider;
-
-		//初始化线程池
-		int cores = Runtime.getRuntime().availableProcessors();
-		bufferPadExecutors = Executors.newFixedThreadPool(cores * 2, new NamingThreadFactory(WORKER_NAME));
+		this.primitiveUidProvider = primitiveUidProvider;
+		this.paddingUids = uidsPerTick > 0 ? new long[uidsPerTick] : null;
+		// 只有原始类型的提供者支持并行填充
+		int slices = primitiveUidProvider != null ? paddingWorker.getParallelism() : 1;
+		this.paddingSlices = slices > 1 ? new long[slices][uidsPerTick] : null;
+		this.sliceSizes = slices > 1 ? new int[slices] : null;
+		this.paddingWorker = paddingWorker;
+		paddingWorker.register(this);
 
 		// initialize schedule thread
 		if (usingSchedule) {
@@ -95,57 +168,249 @@ public class BufferPaddingExecutor {
 	 */
 	public void start() {
 		if (bufferPadSchedule != null) {
-			bufferPadSchedule.scheduleWithFixedDelay(() -> paddingBuffer(), scheduleInterval, scheduleInterval, TimeUnit.SECONDS);
+			bufferPadSchedule.scheduleWithFixedDelay(this::asyncPadding, scheduleInterval, scheduleInterval, TimeUnit.SECONDS);
 		}
 	}
 
 	/**
-	 * 提交padding任务到线程池
+	 * 请求填充,已经有未处理的请求时直接返回,不加锁、不分配对象、不打印日志
 	 */
 	public void asyncPadding() {
-		bufferPadExecutors.submit(this::paddingBuffer);
+		if (!paddingRequested.get() && paddingRequested.compareAndSet(false, true)) {
+			paddingWorker.wakeup();
+		}
+	}
+
+	/**
+	 * 填充线程在填充之前清除请求,之后的请求会触发下一次填充
+	 * 达到领先上限之后,到下一个单位之前保留请求,不填充
+	 */
+	boolean clearPaddingRequest() {
+		return paddingRequested.get() && (throttledUntil == 0 || timeSource.currentTimeMillis() >= throttledUntil)
+				&& paddingRequested.compareAndSet(true, false);
+	}
+
+	/**
+	 * 有请求但是因为达到领先上限还不能填充时,返回距离可以填充还需要等待的毫秒数(最少1),否则返回0
+	 * 返回时长而不是时间点,不同填充器的时钟源可以不同
+	 */
+	long getThrottleDelayMillis() {
+		if (!paddingRequested.get() || throttledUntil == 0) {
+			return 0L;
+		}
+		return Math.max(1L, throttledUntil - timeSource.currentTimeMillis());
 	}
 
 	/**
-	 * 关闭线程池
+	 * 停止填充线程,并等待正在执行的填充结束,之后buffer不会再被填充线程访问(可以安全释放堆外内存)
 	 */
 	public void shutdown() {
-		if (!bufferPadExecutors.isShutdown()) {
-			bufferPadExecutors.shutdownNow();
+		if (!paddingWorker.isShutdown()) {
+			paddingWorker.shutdown(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
 		}
 
 		if (bufferPadSchedule != null && !bufferPadSchedule.isShutdown()) {
 			bufferPadSchedule.shutdownNow();
 		}
+
+		try {
+			if (bufferPadSchedule != null) {
+				bufferPadSchedule.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 
 
 	/**
 	 * 填充buffer直到赶上 current cursor
+	 *
+	 * @return 本次是否发布了uid; 已经有填充在运行,或者一开始就达到领先上限时返回false,也不执行回调
 	 */
-	public void paddingBuffer() {
-		LOGGER.info("Ready to padding buffer lastSecond:{}. {}", lastSecond.get(), ringBuffer);
-
+	public boolean paddingBuffer() {
 		//同时只能有一个线程在运行,当上次的padding操作还没有完成时,本次不做操作,直接返回
 		if (!running.compareAndSet(false, true)) {
-			LOGGER.info("Padding buffer is still running. {}", ringBuffer);
-			return;
+			LOGGER.debug("Padding buffer is still running. {}", ringBuffer);
+			return false;
+		}
+		//日志参数会装箱,只在开启时才传入
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Ready to padding buffer lastTick:{}. {}", lastTick.get(), ringBuffer);
+		}
+
+		long start = System.nanoTime();
+		boolean published;
+		try {
+			published = paddingSlices != null ? paddingInParallel() : padding();
+		} finally {
+			lastPaddingNanos = System.nanoTime() - start;
+			//修改标记为false
+			running.compareAndSet(true, false);
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("End to padding buffer lastTick:{}. {}", lastTick.get(), ringBuffer);
 		}
 
+		if (!published) {
+			return false;
+		}
+		//按下标遍历,不创建迭代器
+		for (int i = 0; i < paddedListeners.size(); i++) {
+			paddedListeners.get(i).run();
+		}
+		return true;
+	}
+
+	/**
+	 * 一次发布一个单位的uid,直到buffer填满
+	 *
+	 * @return 是否发布了uid
+	 */
+	private boolean padding() {
 		//是否填充满标记
 		boolean isFullRingBuffer = false;
+		boolean published = false;
 		while (!isFullRingBuffer) {
-			//生产uid
-			List<Long> uidList = uidProvider.provide(lastSecond.incrementAndGet());
-			for (Long uid : uidList) {
-				isFullRingBuffer = !ringBuffer.put(uid);
-				if (isFullRingBuffer) {
-					break;
+			if (lookAheadBudget() <= 0) {
+				throttle();
+				return published;
+			}
+			//生产uid,一次发布一个单位的uid
+			long[] uids;
+			int size;
+			if (primitiveUidProvider != null) {
+				uids = paddingUids;
+				size = primitiveUidProvider.provide(lastTick.incrementAndGet(), uids);
+			} else {
+				List<Long> uidList = uidProvider.provide(lastTick.incrementAndGet());
+				size = uidList.size();
+				uids = paddingUids(size);
+				for (int i = 0; i < size; i++) {
+					uids[i] = uidList.get(i);
 				}
 			}
+			//buffer放满时最后一个单位放不下,这是每一轮正常的结束,不执行拒绝策略
+			int count = ringBuffer.offerAll(uids, 0, size);
+			if (count > 0) {
+				ringBuffer.signalPadded();
+				published = true;
+			}
+			isFullRingBuffer = count < size;
 		}
-		//修改标记为false
-		running.compareAndSet(true, false);
-		LOGGER.info("End to padding buffer lastSecond:{}. {}", lastSecond.get(), ringBuffer);
+		return published;
+	}
+
+	/**
+	 * 并行填充: 每轮按照buffer的剩余空间从 lastTick 预留连续的几个单位,由填充线程和辅助线程同时生成,再按单位的顺序发布,
+	 * 直到buffer填满
+	 * 预留的单位数不超过剩余空间需要的单位数,所以只有最后一个单位可能放不下,与逐个单位填充一样
+	 *
+	 * @return 是否发布了uid
+	 */
+	private boolean paddingInParallel() {
+		//是否填充满标记
+		boolean isFullRingBuffer = false;
+		boolean published = false;
+		while (!isFullRingBuffer) {
+			long budget = lookAheadBudget();
+			if (budget <= 0) {
+				throttle();
+				return published;
+			}
+			int slices = (int) Math.min(slicesToPad(), budget);
+			firstSliceTick = lastTick.getAndAdd(slices) + 1;
+			paddingWorker.parallel(slices, sliceTask);
+			for (int i = 0; i < slices && !isFullRingBuffer; i++) {
+				int count = ringBuffer.offerAll(paddingSlices[i], 0, sliceSizes[i]);
+				if (count > 0) {
+					ringBuffer.signalPadded();
+					published = true;
+				}
+				isFullRingBuffer = count < sliceSizes[i];
+			}
+		}
+		return published;
+	}
+
+	/**
+	 * 生成本轮第 index 个单位的uid,由填充线程和辅助线程调用
+	 */
+	private void provideSlice(int index) {
+		sliceSizes[index] = primitiveUidProvider.provide(firstSliceTick + index, paddingSlices[index]);
+	}
+
+	/**
+	 * 填满buffer还需要的单位数,最少1个,最多为并行度
+	 */
+	private int slicesToPad() {
+		int uidsPerTick = paddingUids.length;
+		long free = ringBuffer.getBufferSize() - 1L - (ringBuffer.getTail() - ringBuffer.getCursor());
+		long ticks = (free + uidsPerTick - 1) / uidsPerTick;
+		return (int) Math.max(1L, Math.min(paddingSlices.length, ticks));
+	}
+
+	/**
+	 * 在领先上限之内还可以填充的单位数
+	 */
+	private long lookAheadBudget() {
+		if (maxLookAheadTicks <= 0) {
+			return Long.MAX_VALUE;
+		}
+		return currentTick() + maxLookAheadTicks - lastTick.get();
+	}
+
+	/**
+	 * 达到领先上限,结束本次填充,保留填充请求,由填充线程在下一个单位重试
+	 */
+	private void throttle() {
+		throttles.incrementAndGet();
+		throttledUntil = tickUnit.toMillis(currentTick() + 1);
+		paddingRequested.set(true);
+		paddingWorker.wakeup();
+	}
+
+	private long currentTick() {
+		return tickUnit.toTicks(timeSource.currentTimeMillis());
+	}
+
+	/**
+	 * 已填充的最大时间戳领先系统时间的秒数,空闲时可能为负数
+	 */
+	public long getLookAheadSeconds() {
+		return TimeUnit.MILLISECONDS.toSeconds(tickUnit.toMillis(lastTick.get() - currentTick()));
+	}
+
+	/**
+	 * 因为达到领先上限而提前结束填充的次数
+	 */
+	public long getThrottles() {
+		return throttles.get();
+	}
+
+	/**
+	 * @param maxLookAheadSeconds 填充的时间戳最多领先系统时间的秒数,0表示不限制
+	 */
+	public void setMaxLookAheadSeconds(long maxLookAheadSeconds) {
+		Assert.isTrue(maxLookAheadSeconds >= 0, "Max look ahead can't be negative!");
+		this.maxLookAheadTicks = tickUnit.toTicks(TimeUnit.SECONDS.toMillis(maxLookAheadSeconds));
+	}
+
+	/**
+	 * 复用的填充数组,只在持有 running 标记的填充线程中使用
+	 */
+	private long[] paddingUids(int size) {
+		if (paddingUids == null || paddingUids.length != size) {
+			paddingUids = new long[size];
+		}
+		return paddingUids;
+	}
+
+	/**
+	 * 添加填充结束后的回调,回调在填充线程中执行,只在本次填充发布了uid时执行
+	 */
+	public void addPaddedListener(Runnable listener) {
+		Assert.notNull(listener, "Padded listener can't be null!");
+		paddedListeners.add(listener);
 	}
 }
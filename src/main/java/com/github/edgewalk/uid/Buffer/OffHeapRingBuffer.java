@@ -0,0 +1,211 @@
+package com.github.edgewalk.uid.Buffer;
+
+import com.github.edgewalk.uid.exception.UidGenerateException;
+import com.github.edgewalk.uid.utils.PaddedAtomicLong;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆外内存的环形缓存区
+ * 与 {@link SequencedRingBuffer} 的算法相同,槽位 [序号戳, uid] 保存在 sun.misc.Unsafe 分配的直接内存中,
+ * 通过 getLongVolatile/putOrderedLong 读写,堆上只剩下 cursor/tail 等几个对象,大容量的buffer不会增加GC的负担
+ * Unsafe 通过反射和 {@link MethodHandle} 访问,编译时不依赖内部API
+ * 消费者在读者计数内访问直接内存,{@link #release()} 先标记为已释放,等待正在读取的消费者退出之后才释放内存,
+ * 释放之后的消费不会再访问内存; CachedUidGenerator 在 destroy 时释放,{@link ResizableRingBuffer} 在旧buffer取完之后释放
+ */
+public class OffHeapRingBuffer extends SequencedRingBuffer {
+
+	//Unsafe 的内存操作,绑定到 Unsafe 实例
+	private static final MethodHandle ALLOCATE_MEMORY;
+	private static final MethodHandle FREE_MEMORY;
+	private static final MethodHandle GET_LONG_VOLATILE;
+	private static final MethodHandle PUT_ORDERED_LONG;
+
+	static {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			ALLOCATE_MEMORY = lookup.findVirtual(unsafeClass, "allocateMemory", MethodType.methodType(long.class, long.class)).bindTo(unsafe);
+			FREE_MEMORY = lookup.findVirtual(unsafeClass, "freeMemory", MethodType.methodType(void.class, long.class)).bindTo(unsafe);
+			GET_LONG_VOLATILE = lookup.findVirtual(unsafeClass, "getLongVolatile",
+					MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+			PUT_ORDERED_LONG = lookup.findVirtual(unsafeClass, "putOrderedLong",
+					MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	//每个槽位的字节数: 序号戳 + uid
+	private static final int SLOT_BYTES = 2 * Long.BYTES;
+
+	//直接内存的起始地址,释放之后不再访问
+	private final long address;
+	//是否已经释放
+	private volatile boolean released;
+	//正在访问直接内存的消费者数量
+	private final AtomicLong readers = new PaddedAtomicLong();
+
+	public OffHeapRingBuffer(int bufferSize) {
+		this(bufferSize, DEFAULT_PADDING_PERCENT);
+	}
+
+	/**
+	 * @param bufferSize    buffer大小:正数并且是2的倍数
+	 * @param paddingFactor
+	 */
+	public OffHeapRingBuffer(int bufferSize, int paddingFactor) {
+		super(bufferSize, paddingFactor, false);
+		this.address = allocateMemory((long) bufferSize * SLOT_BYTES);
+		initStamps();
+	}
+
+	@Override
+	public boolean put(long uid) {
+		putLock.lock();
+		try {
+			if (released) {
+				rejectedPutHandler.rejectPutBuffer(this, uid);
+				return false;
+			}
+			return super.put(uid);
+		} finally {
+			putLock.unlock();
+		}
+	}
+
+	/**
+	 * 释放之后不再写入,{@link #putAll(long[], int, int)} 对没有写入的部分执行拒绝策略
+	 */
+	@Override
+	public int offerAll(long[] uids, int from, int len) {
+		putLock.lock();
+		try {
+			return released ? 0 : super.offerAll(uids, from, len);
+		} finally {
+			putLock.unlock();
+		}
+	}
+
+	/**
+	 * 先增加读者计数再检查是否已释放,与 {@link #release()} 的顺序相反,两者不会同时通过
+	 * 释放之后执行拒绝策略
+	 */
+	@Override
+	public long take() {
+		readers.incrementAndGet();
+		try {
+			if (!released) {
+				return super.take();
+			}
+		} finally {
+			readers.decrementAndGet();
+		}
+		return super.rejectTake();
+	}
+
+	/**
+	 * buffer为空时的等待不访问直接内存,等待期间退出读者计数,释放时不需要等待消费者超时
+	 * 只在 take 的读者计数内调用
+	 */
+	@Override
+	protected long rejectTake() {
+		readers.decrementAndGet();
+		try {
+			return super.rejectTake();
+		} finally {
+			readers.incrementAndGet();
+		}
+	}
+
+	@Override
+	public int poll(long[] dst, int from, int len) {
+		readers.incrementAndGet();
+		try {
+			return released ? 0 : super.poll(dst, from, len);
+		} finally {
+			readers.decrementAndGet();
+		}
+	}
+
+	@Override
+	protected long getStamp(int index) {
+		return getLongVolatile(address + (long) index * SLOT_BYTES);
+	}
+
+	@Override
+	protected void setStamp(int index, long stamp) {
+		putOrderedLong(address + (long) index * SLOT_BYTES, stamp);
+	}
+
+	@Override
+	protected long getUid(int index) {
+		return getLongVolatile(address + (long) index * SLOT_BYTES + Long.BYTES);
+	}
+
+	@Override
+	protected void setUid(int index, long uid) {
+		putOrderedLong(address + (long) index * SLOT_BYTES + Long.BYTES, uid);
+	}
+
+	/**
+	 * 释放直接内存,重复调用无效
+	 * 在 putLock 内标记为已释放,填充器之后不会再写入;再等待正在读取的消费者退出,之后的消费者不会再访问内存
+	 * 释放之后 put 被拒绝, take 执行拒绝策略
+	 */
+	@Override
+	public void release() {
+		putLock.lock();
+		try {
+			if (released) {
+				return;
+			}
+			released = true;
+		} finally {
+			putLock.unlock();
+		}
+		while (readers.get() != 0) {
+			Thread.yield();
+		}
+		freeMemory(address);
+	}
+
+	private static long allocateMemory(long bytes) {
+		try {
+			return (long) ALLOCATE_MEMORY.invokeExact(bytes);
+		} catch (Throwable e) {
+			throw new UidGenerateException("Allocate off-heap RingBuffer failed", e);
+		}
+	}
+
+	private static void freeMemory(long address) {
+		try {
+			FREE_MEMORY.invokeExact(address);
+		} catch (Throwable e) {
+			throw new UidGenerateException("Free off-heap RingBuffer failed", e);
+		}
+	}
+
+	private static long getLongVolatile(long address) {
+		try {
+			return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+		} catch (Throwable e) {
+			throw new UidGenerateException("Read off-heap RingBuffer failed", e);
+		}
+	}
+
+	private static void putOrderedLong(long address, long value) {
+		try {
+			PUT_ORDERED_LONG.invokeExact((Object) null, address, value);
+		} catch (Throwable e) {
+			throw new UidGenerateException("Write off-heap RingBuffer failed", e);
+		}
+	}
+}
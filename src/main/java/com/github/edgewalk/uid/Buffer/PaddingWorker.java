@@ -0,0 +1,240 @@
+package com.github.edgewalk.uid.Buffer;
+
+import com.github.edgewalk.uid.exception.UidGenerateException;
+import com.github.edgewalk.uid.utils.NamingThreadFactory;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * 专用的填充线程
+ * 一个线程负责一个或多个 {@link BufferPaddingExecutor} (例如 {@link ShardedRingBuffer} 的所有分片),
+ * 填充请求只是设置填充器的标记并 unpark 填充线程,多次请求合并为一次填充,消费线程不提交任务也不打印日志
+ * 并行度大于1时,另有 parallelism - 1 个辅助线程和填充线程一起生成不同时间戳单位的uid,参见 {@link #parallel(int, IntConsumer)},
+ * 辅助线程常驻,每轮发布一个不可变的轮次描述并通过 park/unpark 分发和等待,不提交任务,每轮只分配一个描述对象
+ */
+@Slf4j
+public class PaddingWorker {
+
+	//填充线程名
+	private static final String WORKER_NAME = "RingBuffer-Padding-Worker";
+	//辅助线程名
+	private static final String HELPER_NAME = "RingBuffer-Padding-Helper";
+
+	//由该线程填充的填充器
+	private final List<BufferPaddingExecutor> executors = new CopyOnWriteArrayList<>();
+
+	private final Thread thread;
+
+	//生成uid的并行度,以及并行度大于1时的辅助线程,第 i 个辅助线程执行下标为 i + 1 的任务
+	@Getter
+	private final int parallelism;
+	private final Thread[] helpers;
+
+	//最近发布的一轮,一次volatile写发布本轮的全部信息,辅助线程只读取自己看到的那一轮
+	private volatile Round round;
+	//已经发布的轮数,只在 parallelLock 内修改
+	private long rounds;
+	//不同分片的填充可能同时调用 parallel (例如初始化时),同一时间只能有一轮
+	private final ReentrantLock parallelLock = new ReentrantLock();
+
+	private volatile boolean stopped;
+
+	public PaddingWorker() {
+		this(1);
+	}
+
+	/**
+	 * @param parallelism 同时生成uid的线程数,包括填充线程本身
+	 */
+	public PaddingWorker(int parallelism) {
+		Assert.isTrue(parallelism > 0, "Padding parallelism must be positive!");
+		this.parallelism = parallelism;
+		this.helpers = new Thread[parallelism - 1];
+		NamingThreadFactory helperFactory = new NamingThreadFactory(HELPER_NAME, true);
+		for (int i = 0; i < helpers.length; i++) {
+			int index = i + 1;
+			helpers[i] = helperFactory.newThread(() -> runHelper(index));
+			helpers[i].start();
+		}
+		this.thread = new NamingThreadFactory(WORKER_NAME, true).newThread(this::run);
+		this.thread.start();
+	}
+
+	/**
+	 * 注册由该线程填充的填充器
+	 */
+	void register(BufferPaddingExecutor executor) {
+		executors.add(executor);
+	}
+
+	/**
+	 * 唤醒填充线程,线程还没有挂起时,下一次挂起会立即返回,不会丢失唤醒
+	 */
+	void wakeup() {
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * 依次处理所有请求了填充的填充器,没有请求时挂起,有填充器达到领先上限时挂起到它可以重试的时间
+	 */
+	private void run() {
+		while (!stopped) {
+			boolean padded = false;
+			long retryDelay = Long.MAX_VALUE;
+			//按下标遍历,不创建迭代器
+			for (int i = 0; i < executors.size(); i++) {
+				BufferPaddingExecutor executor = executors.get(i);
+				if (executor.clearPaddingRequest()) {
+					padded = true;
+					try {
+						executor.paddingBuffer();
+					} catch (RuntimeException e) {
+						log.error("Padding buffer failed.", e);
+					}
+				} else {
+					long delay = executor.getThrottleDelayMillis();
+					if (delay > 0) {
+						retryDelay = Math.min(retryDelay, delay);
+					}
+				}
+			}
+			if (padded) {
+				continue;
+			}
+			if (retryDelay == Long.MAX_VALUE) {
+				LockSupport.park(this);
+			} else {
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(retryDelay));
+			}
+		}
+	}
+
+	/**
+	 * 并行执行 count 个任务,调用线程执行第一个,其余交给辅助线程,全部完成之后返回
+	 *
+	 * @param count 任务数量,不超过并行度
+	 * @param task  参数是任务的下标
+	 */
+	void parallel(int count, IntConsumer task) {
+		if (helpers.length == 0 || count == 1) {
+			for (int i = 0; i < count; i++) {
+				task.accept(i);
+			}
+			return;
+		}
+		parallelLock.lock();
+		try {
+			Round current = new Round(++rounds, task, count, Thread.currentThread());
+			this.round = current;
+			for (int i = 0; i < count - 1; i++) {
+				LockSupport.unpark(helpers[i]);
+			}
+			try {
+				task.accept(0);
+			} finally {
+				// 自己的任务失败时同样等待辅助任务结束,下一轮不会与本轮重叠
+				while (current.pending.get() != 0) {
+					LockSupport.park(this);
+				}
+			}
+			if (current.failure != null) {
+				throw new UidGenerateException("Padding in parallel failed", current.failure);
+			}
+		} finally {
+			parallelLock.unlock();
+		}
+	}
+
+	/**
+	 * 辅助线程: 等待新的轮次,下标在本轮任务数量之内时执行,结束后唤醒等待的线程
+	 * 任务、数量和计数都只从读到的同一个轮次描述中读取,轮次编号递增,每一轮最多执行一次;
+	 * 没有参与的轮次可能被跳过,但需要自己参与的轮次在自己执行之前不会结束
+	 * 线程启动之前发布的轮次也不会错过;停止之后仍然完成已经开始的一轮,调用方不会一直等待
+	 */
+	private void runHelper(int index) {
+		long seen = 0L;
+		for (; ; ) {
+			Round current = round;
+			if (current == null || current.id == seen) {
+				if (stopped) {
+					return;
+				}
+				LockSupport.park(this);
+				continue;
+			}
+			seen = current.id;
+			if (index >= current.count) {
+				continue;
+			}
+			try {
+				current.task.accept(index);
+			} catch (Throwable e) {
+				current.failure = e;
+			} finally {
+				if (current.pending.decrementAndGet() == 0) {
+					LockSupport.unpark(current.waiter);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 停止填充线程,并等待正在执行的填充结束,可以重复调用
+	 *
+	 * @param timeout 最多等待的时间
+	 * @param unit    时间单位
+	 */
+	public void shutdown(long timeout, TimeUnit unit) {
+		stopped = true;
+		LockSupport.unpark(thread);
+		for (Thread helper : helpers) {
+			LockSupport.unpark(helper);
+		}
+		if (thread == Thread.currentThread()) {
+			return;
+		}
+		try {
+			thread.join(unit.toMillis(timeout));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public boolean isShutdown() {
+		return stopped;
+	}
+
+	/**
+	 * 一轮并行任务,发布之后除了计数和异常不再修改
+	 */
+	private static final class Round {
+		//轮次编号,从1开始递增
+		private final long id;
+		private final IntConsumer task;
+		//任务数量,下标0由调用线程执行
+		private final int count;
+		//等待本轮结束的线程
+		private final Thread waiter;
+		//本轮还没有结束的辅助任务数量
+		private final AtomicInteger pending;
+		//本轮辅助任务抛出的异常
+		private volatile Throwable failure;
+
+		Round(long id, IntConsumer task, int count, Thread waiter) {
+			this.id = id;
+			this.task = task;
+			this.count = count;
+			this.waiter = waiter;
+			this.pending = new AtomicInteger(count - 1);
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.github.edgewalk.uid.Buffer;
+
+/**
+ * 原始类型的 buffered Uid 提供者
+ * 与 {@link BufferedUidProvider} 相同,但是直接把uid写入填充器复用的数组,不装箱、不分配对象
+ */
+@FunctionalInterface
+public interface PrimitiveUidProvider {
+
+	/**
+	 * 提供 uid,从数组的开头开始写入
+	 *
+	 * @param momentInTick 时间戳,单位是创建填充器时指定的 {@link com.github.edgewalk.uid.utils.TickUnit}
+	 * @param uids         填充器复用的数组,长度是创建填充器时指定的每个单位的uid数量
+	 * @return 写入的uid数量
+	 */
+	int provide(long momentInTick, long[] uids);
+}
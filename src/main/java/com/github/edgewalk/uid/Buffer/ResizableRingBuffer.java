@@ -0,0 +1,259 @@
+package com.github.edgewalk.uid.Buffer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 自动调整容量的环形缓存区
+ * 本身不保存uid,uid保存在当前的 {@link RingBuffer} 中,调整容量时在 putLock 内换上一个新容量的空buffer,
+ * 旧buffer不再填充,消费者先取完旧buffer中剩余的uid再消费新buffer,所以调整过程中uid不会丢失也不会重复;
+ * 旧buffer取完时由发现它为空的消费者释放,{@link RingBuffer#release()} 会等待仍在读取它的消费者退出
+ * {@link #adapt()} 由定时任务每秒调用一次:
+ * 一秒内填充了 {@value #GROW_ROUNDS} 次及以上(消费速度多次让剩余uid低于阈值),容量扩大一倍,直到最大容量;
+ * 只统计发布了uid的填充;一次检查内达到过领先上限时不扩容,更大的buffer也填不满
+ * 连续 shrinkIdleChecks 次检查都没有填充,容量缩小一半,直到最小容量
+ */
+@Slf4j
+public class ResizableRingBuffer extends RingBuffer {
+
+	//一次检查内填充次数达到该值时扩容
+	private static final int GROW_ROUNDS = 2;
+
+	private final RingBufferType type;
+	private final int paddingFactor;
+	private final int minBufferSize;
+	private final int maxBufferSize;
+	private final int shrinkIdleChecks;
+
+	//当前填充和消费的buffer
+	private volatile RingBuffer current;
+	//调整容量之前的buffer,只消费不填充,取完之后置空并释放
+	private final AtomicReference<RingBuffer> draining = new AtomicReference<>();
+
+	//上一次检查之后的填充次数
+	private final AtomicLong paddingRounds = new AtomicLong();
+	//上一次检查时填充器达到领先上限的次数,只在检查线程中访问
+	private long lastThrottles;
+	//连续没有填充的检查次数,只在检查线程中访问
+	private int idleChecks;
+
+	//调整容量的次数
+	private final AtomicLong growths = new AtomicLong();
+	private final AtomicLong shrinks = new AtomicLong();
+
+	//消费时使用的单个uid数组
+	private final ThreadLocal<long[]> single = ThreadLocal.withInitial(() -> new long[1]);
+
+	/**
+	 * @param type             保存uid的buffer类型
+	 * @param bufferSize       初始容量:正数并且是2的倍数
+	 * @param minBufferSize    最小容量
+	 * @param maxBufferSize    最大容量
+	 * @param paddingFactor    填充百分比
+	 * @param shrinkIdleChecks 连续多少次检查没有填充时缩容
+	 */
+	public ResizableRingBuffer(RingBufferType type, int bufferSize, int minBufferSize, int maxBufferSize,
+							   int paddingFactor, int shrinkIdleChecks) {
+		super(bufferSize, paddingFactor, false);
+		Assert.isTrue(minBufferSize > 0 && minBufferSize <= bufferSize && bufferSize <= maxBufferSize,
+				"RingBuffer size must be between the min and max size");
+		Assert.isTrue(shrinkIdleChecks > 0, "Shrink idle checks must be positive");
+		this.type = type;
+		this.paddingFactor = paddingFactor;
+		this.minBufferSize = minBufferSize;
+		this.maxBufferSize = maxBufferSize;
+		this.shrinkIdleChecks = shrinkIdleChecks;
+		this.current = type.create(bufferSize, paddingFactor);
+	}
+
+	@Override
+	public long take() {
+		long[] uid = single.get();
+		return poll(uid, 0, 1) == 1 ? uid[0] : rejectTake();
+	}
+
+	/**
+	 * 先取完旧buffer,再从当前buffer消费
+	 * 先读取 current 再读取 draining,读到旧的 current 时它就是正在取完的buffer,不会漏掉其中的uid
+	 * 旧buffer不会再被填充,为空时已经取完,之后对它的读取只会返回0;
+	 * 读到的 current 在消费期间被换下时(可能已经取完并释放)重新读取,新buffer中的uid不会被漏掉而拒绝
+	 */
+	@Override
+	public int poll(long[] dst, int from, int len) {
+		int count = 0;
+		for (; ; ) {
+			RingBuffer buffer = current;
+			RingBuffer old = draining.get();
+			if (old != null && old != buffer) {
+				int polled = old.poll(dst, from + count, len - count);
+				if (polled == 0 && draining.compareAndSet(old, null)) {
+					old.release();
+				}
+				count += polled;
+			}
+			if (count < len) {
+				count += buffer.poll(dst, from + count, len - count);
+			}
+			if (count == len || current == buffer) {
+				return count;
+			}
+		}
+	}
+
+	@Override
+	public boolean put(long uid) {
+		putLock.lock();
+		try {
+			return current.put(uid);
+		} finally {
+			putLock.unlock();
+		}
+	}
+
+	@Override
+	public int offerAll(long[] uids, int from, int len) {
+		putLock.lock();
+		try {
+			return current.offerAll(uids, from, len);
+		} finally {
+			putLock.unlock();
+		}
+	}
+
+	/**
+	 * 根据上一次检查之后的填充次数调整容量,由定时任务调用,同时只能有一个线程调用
+	 */
+	public void adapt() {
+		long rounds = paddingRounds.getAndSet(0);
+		long throttles = bufferPaddingExecutor.getThrottles();
+		boolean throttled = throttles != lastThrottles;
+		lastThrottles = throttles;
+		int size = current.getBufferSize();
+		if (rounds >= GROW_ROUNDS && !throttled) {
+			idleChecks = 0;
+			if (size < maxBufferSize && resize(size << 1)) {
+				growths.incrementAndGet();
+			}
+		} else if (rounds > 0) {
+			idleChecks = 0;
+		} else if (++idleChecks >= shrinkIdleChecks) {
+			idleChecks = 0;
+			if (size > minBufferSize && resize(size >>> 1)) {
+				shrinks.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * 换上新容量的空buffer并触发填充,上一次调整之前的buffer还没有取完时不调整
+	 */
+	private boolean resize(int bufferSize) {
+		putLock.lock();
+		try {
+			if (draining.get() != null) {
+				return false;
+			}
+			RingBuffer next = type.create(bufferSize, paddingFactor);
+			next.setRejectedPutHandler(rejectedPutHandler);
+			next.setBufferPaddingExecutor(bufferPaddingExecutor);
+			// 先标记为取完中,再切换,消费者读到新buffer时一定能读到旧buffer
+			draining.set(current);
+			log.info("Resize ring buffer from {} to {}", current.getBufferSize(), bufferSize);
+			current = next;
+		} finally {
+			putLock.unlock();
+		}
+		bufferPaddingExecutor.asyncPadding();
+		return true;
+	}
+
+	@Override
+	protected boolean isEmpty() {
+		RingBuffer old = draining.get();
+		return current.isEmpty() && (old == null || old.isEmpty());
+	}
+
+	@Override
+	public void release() {
+		RingBuffer old = draining.getAndSet(null);
+		if (old != null) {
+			old.release();
+		}
+		current.release();
+	}
+
+	/**
+	 * 填充器同时用于当前buffer,并统计填充次数
+	 * 回调只在发布了uid时执行,直接因为领先上限返回的填充不统计
+	 */
+	@Override
+	public void setBufferPaddingExecutor(BufferPaddingExecutor bufferPaddingExecutor) {
+		super.setBufferPaddingExecutor(bufferPaddingExecutor);
+		current.setBufferPaddingExecutor(bufferPaddingExecutor);
+		bufferPaddingExecutor.addPaddedListener(paddingRounds::incrementAndGet);
+	}
+
+	/**
+	 * 阈值设置在当前buffer上,新换上的buffer使用默认的阈值,直到下一次设置
+	 * 调用方计算阈值之后可能已经换上了更小的buffer,按实际设置的buffer的容量限制阈值
+	 */
+	@Override
+	public void setPaddingThreshold(int paddingThreshold) {
+		RingBuffer buffer = current;
+		buffer.setPaddingThreshold(Math.min(paddingThreshold, buffer.getBufferSize() - 1));
+	}
+
+	@Override
+	public int getPaddingThreshold() {
+		return current.getPaddingThreshold();
+	}
+
+	@Override
+	public void setRejectedPutHandler(RejectedPutBufferHandler rejectedPutHandler) {
+		super.setRejectedPutHandler(rejectedPutHandler);
+		current.setRejectedPutHandler(rejectedPutHandler);
+	}
+
+	/**
+	 * 当前buffer和正在取完的buffer的 tail 之和
+	 */
+	@Override
+	public long getTail() {
+		RingBuffer old = draining.get();
+		return current.getTail() + (old == null ? 0 : old.getTail());
+	}
+
+	/**
+	 * 当前buffer和正在取完的buffer的 cursor 之和
+	 */
+	@Override
+	public long getCursor() {
+		RingBuffer old = draining.get();
+		return current.getCursor() + (old == null ? 0 : old.getCursor());
+	}
+
+	/**
+	 * 当前buffer和正在取完的buffer的容量之和,与 {@link #getTail()} 和 {@link #getCursor()} 的口径一致
+	 */
+	@Override
+	public int getBufferSize() {
+		RingBuffer old = draining.get();
+		return current.getBufferSize() + (old == null ? 0 : old.getBufferSize());
+	}
+
+	public long getGrowths() {
+		return growths.get();
+	}
+
+	public long getShrinks() {
+		return shrinks.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ResizableRingBuffer [current=" + current + ", draining=" + draining.get() + "]";
+	}
+}
@@ -15,11 +15,16 @@
  */
 package com.github.edgewalk.uid.Buffer;
 
+import com.github.edgewalk.uid.exception.UidGenerateException;
 import com.github.edgewalk.uid.utils.PaddedAtomicLong;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.Assert;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 基于数组的环形缓存区
@@ -38,34 +43,43 @@ public class RingBuffer {
 	public static final int DEFAULT_PADDING_PERCENT = 50;
 
 	//初始标记
-	private static final int START_POINT = -1;
+	protected static final int START_POINT = -1;
 	//是否可放
-	private static final long CAN_PUT_FLAG = 0L;
+	private static final int CAN_PUT_FLAG = 0;
 	//是否可取
-	private static final long CAN_TAKE_FLAG = 1L;
+	private static final int CAN_TAKE_FLAG = 1;
 	//buffer长度
-	private final int bufferSize;
+	protected final int bufferSize;
 	//buffer最大索引,例如: buffersize=8 ,indexMask=7
 	private final long indexMask;
 
 	//保存uid
 	private final long[] slots;
-	//存储Uid状态(是否可填充、是否可消费)
-	private final PaddedAtomicLong[] flags;
+	//存储Uid状态(是否可填充、是否可消费),扁平的int数组,每个槽位4个字节,不再为每个槽位分配一个 PaddedAtomicLong
+	private final AtomicIntegerArray flags;
 
 	//Tail: 表示Producer生产的最大序号
-	private final AtomicLong tail = new PaddedAtomicLong(START_POINT);
+	protected final AtomicLong tail = new PaddedAtomicLong(START_POINT);
 	//Cursor: consumer当前消费到的位置
-	private final AtomicLong cursor = new PaddedAtomicLong(START_POINT);
-	//剩余未消费uid阈值 =bufferSize * (paddingFactor/100)
-	private final int paddingThreshold;
+	protected final AtomicLong cursor = new PaddedAtomicLong(START_POINT);
+	//串行化生产者,不使用 synchronized,避免钉住虚拟线程的载体线程
+	protected final ReentrantLock putLock = new ReentrantLock();
+	//剩余未消费uid阈值 =bufferSize * (paddingFactor/100),可以由 {@link AdaptivePaddingController} 动态调整
+	protected volatile int paddingThreshold;
 
 	//拒绝策略处理器
-	private RejectedPutBufferHandler rejectedPutHandler = this::discardPutBuffer;
+	protected RejectedPutBufferHandler rejectedPutHandler = this::discardPutBuffer;
 	private RejectedTakeBufferHandler rejectedTakeHandler = this::exceptionRejectedTakeBuffer;
 
 	//填充 buffer的执行器
-	private BufferPaddingExecutor bufferPaddingExecutor;
+	protected BufferPaddingExecutor bufferPaddingExecutor;
+
+	//buffer为空时的等待策略和最大等待时间,默认不等待
+	private WaitStrategy waitStrategy = WaitStrategy.NONE;
+	private long maxWaitNanos;
+	//BLOCK 策略等待的条件,填充器发布uid之后唤醒,分片的buffer共用外层的条件
+	protected ReentrantLock waitLock = new ReentrantLock();
+	protected Condition padded = waitLock.newCondition();
 
 	/**
 	 * TODO 当不是2的倍数时,自动处理
@@ -81,12 +95,22 @@ public class RingBuffer {
 	 * @param paddingFactor
 	 */
 	public RingBuffer(int bufferSize, int paddingFactor) {
+		this(bufferSize, paddingFactor, true);
+	}
+
+	/**
+	 * @param bufferSize    buffer大小:正数并且是2的倍数
+	 * @param paddingFactor
+	 * @param allocateSlots 是否分配 slots 和 flags 数组,自己保存uid的子类传false
+	 */
+	protected RingBuffer(int bufferSize, int paddingFactor, boolean allocateSlots) {
 		Assert.isTrue(bufferSize > 0L, "RingBuffer size must be positive");
 		Assert.isTrue(paddingFactor > 0 && paddingFactor < 100, "RingBuffer size must be positive");
 		this.bufferSize = bufferSize;
 		this.indexMask = bufferSize - 1;
-		this.slots = new long[bufferSize];
-		this.flags = initFlags(bufferSize);
+		this.slots = allocateSlots ? new long[bufferSize] : null;
+		//初始值0,表示可放置
+		this.flags = allocateSlots ? new AtomicIntegerArray(bufferSize) : null;
 		this.paddingThreshold = bufferSize * paddingFactor / 100;
 	}
 
@@ -98,66 +122,291 @@ public class RingBuffer {
 	 * @param uid
 	 * @return 当buffer放置满后, 返回false, 同时会执行拒绝策略 {@link RejectedPutBufferHandler}
 	 */
-	public synchronized boolean put(long uid) {
-		long currentTail = tail.get();
-		long currentCursor = cursor.get();
-
-		//如果当前生产位置 = 当前消费位置,那么就表示 Ringbuffer慢了,不能再放置了
-		long distance = currentTail - (currentCursor == START_POINT ? 0 : currentCursor);
-		//distance 表示当前未消费的元素
-		if (distance == bufferSize - 1) {
-			rejectedPutHandler.rejectPutBuffer(this, uid);
-			return false;
+	public boolean put(long uid) {
+		putLock.lock();
+		try {
+			long currentTail = tail.get();
+			long currentCursor = cursor.get();
+
+			//如果当前生产位置 = 当前消费位置,那么就表示 Ringbuffer慢了,不能再放置了
+			long distance = currentTail - (currentCursor == START_POINT ? 0 : currentCursor);
+			//distance 表示当前未消费的元素
+			if (distance == bufferSize - 1) {
+				rejectedPutHandler.rejectPutBuffer(this, uid);
+				return false;
+			}
+			// 1. 检查flag数组下一个元素,是否可放
+			int nextTailIndex = calSlotIndex(currentTail + 1);
+			if (flags.get(nextTailIndex) != CAN_PUT_FLAG) {
+				rejectedPutHandler.rejectPutBuffer(this, uid);
+				return false;
+			}
+			//2. 放置uid到下一个槽位
+			slots[nextTailIndex] = uid;
+			//3. 设置flag数组下一个槽位为可取
+			flags.set(nextTailIndex, CAN_TAKE_FLAG);
+			// 4. 更新生产位置+1
+			tail.incrementAndGet();
+			return true;
+		} finally {
+			putLock.unlock();
 		}
-		// 1. 检查flag数组下一个元素,是否可放
-		int nextTailIndex = calSlotIndex(currentTail + 1);
-		if (flags[nextTailIndex].get() != CAN_PUT_FLAG) {
-			rejectedPutHandler.rejectPutBuffer(this, uid);
-			return false;
+	}
+
+	/**
+	 * 批量添加uid到连续的槽位
+	 *
+	 * @param uids uid数组
+	 * @param from 数组中的起始位置
+	 * @param len  添加的数量
+	 * @return 实际添加的数量, 小于 len 时说明buffer已满,同时会执行拒绝策略 {@link RejectedPutBufferHandler}
+	 */
+	public int putAll(long[] uids, int from, int len) {
+		int count = offerAll(uids, from, len);
+		if (count < len) {
+			rejectedPutHandler.rejectPutBuffer(this, uids[from + count]);
 		}
-		//2. 放置uid到下一个槽位
-		slots[nextTailIndex] = uid;
-		//3. 设置flag数组下一个槽位为可取
-		flags[nextTailIndex].set(CAN_TAKE_FLAG);
-		// 4. 更新生产位置+1
-		tail.incrementAndGet();
-		return true;
+		return count;
 	}
 
 	/**
-	 * @return
+	 * 批量添加uid到连续的槽位,放满为止,放不下的部分不执行拒绝策略
+	 * 填充器每一轮都以放满buffer结束,最后一个单位放不下是预期的结果,不作为拒绝
+	 * 只检查一次容量,写完所有槽位之后通过一次有序写(lazySet)发布tail,消费者读到新的tail时一定能看到槽位和标记
+	 *
+	 * @param uids uid数组
+	 * @param from 数组中的起始位置
+	 * @param len  添加的数量
+	 * @return 实际添加的数量, 小于 len 时说明buffer已满
 	 */
-	public long take() {
-		//获取当前消费的位置
-		long currentCursor = cursor.get();
-		//获取下一个cursor位置,保证 next cursor <= current cursor
-		long nextCursor = cursor.updateAndGet(old -> old == tail.get() ? old : old + 1);
-
-		// current cursor == current tail :uid被消费完
-		if (nextCursor == currentCursor) {
-			rejectedTakeHandler.rejectTakeBuffer(this);
+	public int offerAll(long[] uids, int from, int len) {
+		putLock.lock();
+		try {
+			long currentTail = tail.get();
+			long currentCursor = cursor.get();
+
+			//剩余可以放置的槽位数,与 put 的判断保持一致: 未消费的元素最多 bufferSize - 1 个
+			long distance = currentTail - (currentCursor == START_POINT ? 0 : currentCursor);
+			int count = (int) Math.min(len, bufferSize - 1 - distance);
+			for (int i = 0; i < count; i++) {
+				int index = calSlotIndex(currentTail + 1 + i);
+				// 消费者已经认领但还没有取走的槽位不能覆盖
+				if (flags.get(index) != CAN_PUT_FLAG) {
+					count = i;
+					break;
+				}
+				slots[index] = uids[from + i];
+				flags.lazySet(index, CAN_TAKE_FLAG);
+			}
+			// 一次发布所有槽位
+			tail.lazySet(currentTail + count);
+			return count;
+		} finally {
+			putLock.unlock();
 		}
-		Assert.isTrue(nextCursor >= currentCursor, "Curosr can't move back");
+	}
+
+	/**
+	 * 消费一个uid
+	 * 热点路径上不分配对象、不打印日志,buffer为空和触发填充都放在单独的方法中处理
+	 *
+	 * @return uid
+	 */
+	public long take() {
+		//获取下一个cursor位置,保证 next cursor <= current tail
+		long currentCursor;
+		do {
+			currentCursor = cursor.get();
+			// current cursor == current tail :uid被消费完
+			if (currentCursor == tail.get()) {
+				return rejectTake();
+			}
+		} while (!cursor.compareAndSet(currentCursor, currentCursor + 1));
+		long nextCursor = currentCursor + 1;
+
 		long currentTail = tail.get();
 		//如果剩余未消费uid,小于设置的阈值,将触发填充操作
 		if (currentTail - nextCursor < paddingThreshold) {
-			log.info("Reach the padding threshold:{}. tail:{}, cursor:{}, rest:{}", paddingThreshold, currentTail,
-					nextCursor, currentTail - nextCursor);
-			bufferPaddingExecutor.asyncPadding();
+			reachPaddingThreshold(currentTail, nextCursor);
 		}
 		// 1. 获取数组索引
 		int nextCursorIndex = calSlotIndex(nextCursor);
-		Assert.isTrue(flags[nextCursorIndex].get() == CAN_TAKE_FLAG, "Curosr not in can take status");
+		Assert.isTrue(flags.get(nextCursorIndex) == CAN_TAKE_FLAG, "Curosr not in can take status");
 
 		// 2. 获取 下一个槽位的uid
 		long uid = slots[nextCursorIndex];
 		// 3. 设置下一个槽位的标记为 可放
-		flags[nextCursorIndex].set(CAN_PUT_FLAG);
+		flags.set(nextCursorIndex, CAN_PUT_FLAG);
 		// Note that: Step 2,3 can not swap. If we set flag before get value of slot, the producer may overwrite the
 		// slot with a new UID, and this may cause the consumer take the UID twice after walk a round the ring
 		return uid;
 	}
 
+	/**
+	 * 批量消费,从数组的开头开始保存,一次CAS最多认领 max 个连续的槽位,每批只检查一次填充阈值
+	 *
+	 * @param dst 保存uid的数组
+	 * @param max 最多认领的数量,不能超过数组长度
+	 * @return 实际认领的数量, 当buffer为空时执行拒绝策略 {@link RejectedTakeBufferHandler}
+	 */
+	public int takeBatch(long[] dst, int max) {
+		Assert.isTrue(max > 0 && max <= dst.length, "Batch size must be positive and not exceed the array length");
+		return take(dst, 0, max);
+	}
+
+	/**
+	 * 批量消费: 一次CAS认领连续的多个槽位
+	 *
+	 * @param dst  保存uid的数组
+	 * @param from 数组中的起始位置
+	 * @param len  最多认领的数量
+	 * @return 实际认领的数量, 当buffer为空时执行拒绝策略 {@link RejectedTakeBufferHandler}
+	 */
+	public int take(long[] dst, int from, int len) {
+		int count = poll(dst, from, len);
+		if (count == 0) {
+			count = awaitPoll(dst, from, len);
+		}
+		if (count == 0) {
+			runRejectedTakeHandler();
+		}
+		return count;
+	}
+
+	/**
+	 * 批量消费,buffer为空时不执行拒绝策略,只触发填充并返回0
+	 * 供异步调用方在填充完成后重试,参见 {@link BufferPaddingExecutor#addPaddedListener(Runnable)}
+	 *
+	 * @param dst  保存uid的数组
+	 * @param from 数组中的起始位置
+	 * @param len  最多认领的数量
+	 * @return 实际认领的数量, buffer为空时返回0
+	 */
+	public int poll(long[] dst, int from, int len) {
+		long currentCursor;
+		long nextCursor;
+		do {
+			currentCursor = cursor.get();
+			//最多认领到tail
+			nextCursor = Math.min(currentCursor + len, tail.get());
+			// current cursor == current tail :uid被消费完
+			if (nextCursor == currentCursor) {
+				bufferPaddingExecutor.asyncPadding();
+				return 0;
+			}
+		} while (!cursor.compareAndSet(currentCursor, nextCursor));
+
+		long currentTail = tail.get();
+		//如果剩余未消费uid,小于设置的阈值,将触发填充操作
+		if (currentTail - nextCursor < paddingThreshold) {
+			reachPaddingThreshold(currentTail, nextCursor);
+		}
+
+		for (long sequence = currentCursor + 1; sequence <= nextCursor; sequence++) {
+			int index = calSlotIndex(sequence);
+			Assert.isTrue(flags.get(index) == CAN_TAKE_FLAG, "Curosr not in can take status");
+			// 先取uid,再设置为可放,顺序不能交换
+			dst[from++] = slots[index];
+			flags.set(index, CAN_PUT_FLAG);
+		}
+		return (int) (nextCursor - currentCursor);
+	}
+
+	/**
+	 * 释放buffer占用的非堆资源,堆上的实现不需要释放
+	 */
+	public void release() {
+	}
+
+	/**
+	 * 填充器发布uid之后唤醒 BLOCK 策略的等待者
+	 */
+	public void signalPadded() {
+		waitLock.lock();
+		try {
+			padded.signalAll();
+		} finally {
+			waitLock.unlock();
+		}
+	}
+
+	/**
+	 * BLOCK 策略: buffer为空时阻塞,直到填充器发布uid或者超时
+	 * 在锁内检查是否为空,发布在唤醒之前,不会丢失唤醒
+	 */
+	void awaitPadded(long nanos) {
+		waitLock.lock();
+		try {
+			if (isEmpty()) {
+				padded.awaitNanos(nanos);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			waitLock.unlock();
+		}
+	}
+
+	/**
+	 * 是否没有可消费的uid
+	 */
+	protected boolean isEmpty() {
+		return getCursor() >= getTail();
+	}
+
+	/**
+	 * buffer为空,按照等待策略等待填充,超时后执行拒绝策略 (冷路径)
+	 * 拒绝策略没有抛出异常时,同样拒绝本次消费
+	 */
+	protected long rejectTake() {
+		if (waitStrategy != WaitStrategy.NONE) {
+			long[] uid = new long[1];
+			// poll 在buffer为空时会触发填充
+			if (poll(uid, 0, 1) == 1 || awaitPoll(uid, 0, 1) == 1) {
+				return uid[0];
+			}
+		}
+		return runRejectedTakeHandler();
+	}
+
+	/**
+	 * 按照等待策略等待,每次醒来发现buffer不为空时重新认领,最多等待 maxWaitNanos (冷路径)
+	 * 为空时不调用 poll,避免自旋时不停地提交填充任务
+	 *
+	 * @return 实际认领的数量, 超时返回0
+	 */
+	protected int awaitPoll(long[] dst, int from, int len) {
+		if (waitStrategy == WaitStrategy.NONE) {
+			return 0;
+		}
+		long deadline = System.nanoTime() + maxWaitNanos;
+		long remaining = maxWaitNanos;
+		while (remaining > 0) {
+			waitStrategy.idle(this, remaining);
+			if (!isEmpty()) {
+				int count = poll(dst, from, len);
+				if (count > 0) {
+					return count;
+				}
+			}
+			remaining = deadline - System.nanoTime();
+		}
+		return 0;
+	}
+
+	private long runRejectedTakeHandler() {
+		rejectedTakeHandler.rejectTakeBuffer(this);
+		throw new UidGenerateException("Rejected take buffer. " + this);
+	}
+
+	/**
+	 * 剩余未消费的uid低于阈值,触发填充
+	 * 填充请求会被合并,低于阈值之后的每次消费都会调用,所以这里不打印日志
+	 */
+	protected void reachPaddingThreshold(long currentTail, long nextCursor) {
+		bufferPaddingExecutor.asyncPadding();
+	}
+
 	/**
 	 * 根据消费或生产序号计算数组的索引位置
 	 * Calculate slot index with the slot sequence (sequence % bufferSize)
@@ -179,19 +428,7 @@ public class RingBuffer {
 	 */
 	protected void exceptionRejectedTakeBuffer(RingBuffer ringBuffer) {
 		log.warn("Rejected take buffer. {}", ringBuffer);
-		throw new RuntimeException("Rejected take buffer. " + ringBuffer);
-	}
-
-	/**
-	 * 初始化 RingBuffer of flags,默认是0,表示可放置
-	 */
-	private PaddedAtomicLong[] initFlags(int bufferSize) {
-		PaddedAtomicLong[] flags = new PaddedAtomicLong[bufferSize];
-		for (int i = 0; i < bufferSize; i++) {
-			flags[i] = new PaddedAtomicLong(CAN_PUT_FLAG);
-		}
-
-		return flags;
+		throw new UidGenerateException("Rejected take buffer. " + ringBuffer);
 	}
 
 	/**
@@ -209,6 +446,10 @@ public class RingBuffer {
 		return bufferSize;
 	}
 
+	public int getPaddingThreshold() {
+		return paddingThreshold;
+	}
+
 	/**
 	 * Setters
 	 */
@@ -216,6 +457,14 @@ public class RingBuffer {
 		this.bufferPaddingExecutor = bufferPaddingExecutor;
 	}
 
+	/**
+	 * @param paddingThreshold 剩余未消费uid的阈值,必须小于buffer大小
+	 */
+	public void setPaddingThreshold(int paddingThreshold) {
+		Assert.isTrue(paddingThreshold > 0 && paddingThreshold < bufferSize, "Padding threshold must be between 0 and buffer size");
+		this.paddingThreshold = paddingThreshold;
+	}
+
 	public void setRejectedPutHandler(RejectedPutBufferHandler rejectedPutHandler) {
 		this.rejectedPutHandler = rejectedPutHandler;
 	}
@@ -224,6 +473,18 @@ public class RingBuffer {
 		this.rejectedTakeHandler = rejectedTakeHandler;
 	}
 
+	/**
+	 * @param waitStrategy buffer为空时的等待策略
+	 * @param maxWait      最大等待时间,超时后执行拒绝策略
+	 * @param unit         时间单位
+	 */
+	public void setWaitStrategy(WaitStrategy waitStrategy, long maxWait, TimeUnit unit) {
+		Assert.notNull(waitStrategy, "Wait strategy can't be null!");
+		Assert.isTrue(maxWait >= 0, "Max wait can't be negative!");
+		this.waitStrategy = waitStrategy;
+		this.maxWaitNanos = unit.toNanos(maxWait);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -0,0 +1,46 @@
+package com.github.edgewalk.uid.Buffer;
+
+/**
+ * 环形缓存区类型
+ */
+public enum RingBufferType {
+
+	/**
+	 * slots + flags 两个数组,参见 {@link RingBuffer}
+	 */
+	FLAGGED {
+		@Override
+		public RingBuffer create(int bufferSize, int paddingFactor) {
+			return new RingBuffer(bufferSize, paddingFactor);
+		}
+	},
+
+	/**
+	 * 槽位中保存序号戳,没有flags数组,参见 {@link SequencedRingBuffer}
+	 */
+	SEQUENCED {
+		@Override
+		public RingBuffer create(int bufferSize, int paddingFactor) {
+			return new SequencedRingBuffer(bufferSize, paddingFactor);
+		}
+	},
+
+	/**
+	 * 与 SEQUENCED 相同,槽位保存在堆外的直接内存中,参见 {@link OffHeapRingBuffer}
+	 */
+	OFF_HEAP {
+		@Override
+		public RingBuffer create(int bufferSize, int paddingFactor) {
+			return new OffHeapRingBuffer(bufferSize, paddingFactor);
+		}
+	};
+
+	/**
+	 * 创建对应类型的环形缓存区
+	 *
+	 * @param bufferSize    buffer大小:正数并且是2的倍数
+	 * @param paddingFactor 填充百分比
+	 * @return 环形缓存区
+	 */
+	public abstract RingBuffer create(int bufferSize, int paddingFactor);
+}
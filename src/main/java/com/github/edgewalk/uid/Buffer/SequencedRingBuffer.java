@@ -0,0 +1,175 @@
+package com.github.edgewalk.uid.Buffer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 没有flags数组的环形缓存区 (类似Disruptor的可用性标记)
+ * 每个槽位由相邻的两个long组成: [序号戳, uid],两者总在同一个cache line中
+ * 序号戳:
+ * 等于序号 s         : 序号 s 的uid已经放入,可取
+ * 等于 ~s (即 -s-1)  : 序号 s 的uid已经取走,序号 s + bufferSize 可放
+ * 消费者通过下一个槽位的序号戳判断是否可取,不再读取 tail 和 flags,每次消费只有一次槽位读取和一次 cursor CAS
+ */
+public class SequencedRingBuffer extends RingBuffer {
+
+	//槽位: [2 * index] 序号戳, [2 * index + 1] uid
+	private final AtomicLongArray slots;
+
+	public SequencedRingBuffer(int bufferSize) {
+		this(bufferSize, DEFAULT_PADDING_PERCENT);
+	}
+
+	/**
+	 * @param bufferSize    buffer大小:正数并且是2的倍数
+	 * @param paddingFactor
+	 */
+	public SequencedRingBuffer(int bufferSize, int paddingFactor) {
+		this(bufferSize, paddingFactor, true);
+		initStamps();
+	}
+
+	/**
+	 * @param allocateSlots 是否在堆上分配槽位,自己保存槽位的子类传false,并在分配之后调用 {@link #initStamps()}
+	 */
+	protected SequencedRingBuffer(int bufferSize, int paddingFactor, boolean allocateSlots) {
+		super(bufferSize, paddingFactor, false);
+		this.slots = allocateSlots ? new AtomicLongArray(bufferSize << 1) : null;
+	}
+
+	/**
+	 * 初始状态相当于上一圈的序号都已经被取走
+	 */
+	protected final void initStamps() {
+		for (int index = 0; index < bufferSize; index++) {
+			setStamp(index, taken(index - bufferSize));
+		}
+	}
+
+	@Override
+	public boolean put(long uid) {
+		putLock.lock();
+		try {
+			long nextTail = tail.get() + 1;
+			int index = calSlotIndex(nextTail);
+			// 上一圈的uid还没有被取走,buffer已满
+			if (getStamp(index) != taken(nextTail - bufferSize)) {
+				rejectedPutHandler.rejectPutBuffer(this, uid);
+				return false;
+			}
+			setUid(index, uid);
+			setStamp(index, nextTail);
+			tail.lazySet(nextTail);
+			return true;
+		} finally {
+			putLock.unlock();
+		}
+	}
+
+	@Override
+	public int offerAll(long[] uids, int from, int len) {
+		putLock.lock();
+		try {
+			long currentTail = tail.get();
+			int count = 0;
+			while (count < len) {
+				long sequence = currentTail + 1 + count;
+				int index = calSlotIndex(sequence);
+				if (getStamp(index) != taken(sequence - bufferSize)) {
+					break;
+				}
+				// 先写uid,再写序号戳发布
+				setUid(index, uids[from + count]);
+				setStamp(index, sequence);
+				count++;
+			}
+			tail.lazySet(currentTail + count);
+			return count;
+		} finally {
+			putLock.unlock();
+		}
+	}
+
+	@Override
+	public long take() {
+		long currentCursor;
+		long nextCursor;
+		int index;
+		do {
+			currentCursor = cursor.get();
+			nextCursor = currentCursor + 1;
+			index = calSlotIndex(nextCursor);
+			// 下一个序号还没有放入,uid被消费完
+			if (getStamp(index) != nextCursor) {
+				return rejectTake();
+			}
+		} while (!cursor.compareAndSet(currentCursor, nextCursor));
+
+		// 认领之后生产者不会覆盖该槽位,先取uid,再标记为已取走,顺序不能交换
+		long uid = getUid(index);
+		setStamp(index, taken(nextCursor));
+		checkPaddingThreshold(nextCursor);
+		return uid;
+	}
+
+	@Override
+	public int poll(long[] dst, int from, int len) {
+		long currentCursor;
+		int count;
+		do {
+			currentCursor = cursor.get();
+			count = 0;
+			while (count < len && getStamp(calSlotIndex(currentCursor + 1 + count)) == currentCursor + 1 + count) {
+				count++;
+			}
+			if (count == 0) {
+				bufferPaddingExecutor.asyncPadding();
+				return 0;
+			}
+		} while (!cursor.compareAndSet(currentCursor, currentCursor + count));
+
+		for (int i = 1; i <= count; i++) {
+			int index = calSlotIndex(currentCursor + i);
+			dst[from++] = getUid(index);
+			setStamp(index, taken(currentCursor + i));
+		}
+		checkPaddingThreshold(currentCursor + count);
+		return count;
+	}
+
+	/**
+	 * 阈值位置的序号还没有放入时,说明剩余未消费的uid少于阈值,触发填充
+	 * 只读取一个槽位的序号戳,不读取 tail
+	 */
+	private void checkPaddingThreshold(long currentCursor) {
+		long thresholdSequence = currentCursor + paddingThreshold;
+		if (getStamp(calSlotIndex(thresholdSequence)) != thresholdSequence) {
+			reachPaddingThreshold(tail.get(), currentCursor);
+		}
+	}
+
+	/**
+	 * 槽位访问: 读取是volatile读,写入是有序写(lazySet),先写uid再写序号戳
+	 */
+	protected long getStamp(int index) {
+		return slots.get(index << 1);
+	}
+
+	protected void setStamp(int index, long stamp) {
+		slots.lazySet(index << 1, stamp);
+	}
+
+	protected long getUid(int index) {
+		return slots.get((index << 1) + 1);
+	}
+
+	protected void setUid(int index, long uid) {
+		slots.lazySet((index << 1) + 1, uid);
+	}
+
+	/**
+	 * 序号 sequence 的uid已经被取走时的序号戳
+	 */
+	private static long taken(long sequence) {
+		return ~sequence;
+	}
+}
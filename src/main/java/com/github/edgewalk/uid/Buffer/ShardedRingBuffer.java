@@ -0,0 +1,138 @@
+package com.github.edgewalk.uid.Buffer;
+
+import com.github.edgewalk.uid.exception.UidGenerateException;
+import org.springframework.util.Assert;
+
+/**
+ * 分片的环形缓存区
+ * 由多个独立的 {@link RingBuffer} 组成,每个分片有自己的 cursor/tail 和填充器,填充的是互不重叠的序列号区间,
+ * 消费者根据线程id的hash选择固定的主分片,主分片为空时依次从其他分片窃取,所有分片都为空才执行拒绝策略;
+ * 不同主分片上的消费者不会竞争同一个 cursor 缓存行
+ * 本身不保存uid,put/putAll 由每个分片的 {@link BufferPaddingExecutor} 直接调用分片完成
+ */
+public class ShardedRingBuffer extends RingBuffer {
+
+	//所有分片,数量是2的幂
+	private final RingBuffer[] shards;
+	//分片数量所占的位数
+	private final int shardBits;
+	//窃取时使用的单个uid数组
+	private final ThreadLocal<long[]> single = ThreadLocal.withInitial(() -> new long[1]);
+
+	/**
+	 * @param shards 所有分片,数量必须是2的幂,每个分片需要设置好自己的填充器
+	 */
+	public ShardedRingBuffer(RingBuffer[] shards) {
+		super(Integer.highestOneBit(shards[0].getBufferSize()), DEFAULT_PADDING_PERCENT, false);
+		Assert.isTrue(shards.length > 1 && Integer.bitCount(shards.length) == 1, "Shard count must be a power of 2");
+		this.shards = shards;
+		// 分片的填充器唤醒外层buffer上等待的消费者
+		for (RingBuffer shard : shards) {
+			shard.waitLock = waitLock;
+			shard.padded = padded;
+		}
+		this.shardBits = Integer.numberOfTrailingZeros(shards.length);
+	}
+
+	/**
+	 * 优先从主分片消费,主分片为空时依次从其他分片窃取
+	 */
+	@Override
+	public long take() {
+		long[] uid = single.get();
+		int home = shardIndex();
+		for (int i = 0; i < shards.length; i++) {
+			if (shards[(home + i) & (shards.length - 1)].poll(uid, 0, 1) == 1) {
+				return uid[0];
+			}
+		}
+		return rejectTake();
+	}
+
+	/**
+	 * 优先从主分片批量消费,不足时继续从其他分片窃取,所有分片都为空时返回0
+	 */
+	@Override
+	public int poll(long[] dst, int from, int len) {
+		int home = shardIndex();
+		int count = 0;
+		for (int i = 0; i < shards.length && count < len; i++) {
+			count += shards[(home + i) & (shards.length - 1)].poll(dst, from + count, len - count);
+		}
+		return count;
+	}
+
+	@Override
+	public boolean put(long uid) {
+		throw new UidGenerateException("ShardedRingBuffer is padded per shard");
+	}
+
+	@Override
+	public int offerAll(long[] uids, int from, int len) {
+		throw new UidGenerateException("ShardedRingBuffer is padded per shard");
+	}
+
+	@Override
+	public void release() {
+		for (RingBuffer shard : shards) {
+			shard.release();
+		}
+	}
+
+	/**
+	 * 根据线程id的hash选择主分片,同一个线程总是落在同一个分片
+	 */
+	private int shardIndex() {
+		long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> (Long.SIZE - shardBits));
+	}
+
+	public RingBuffer[] getShards() {
+		return shards;
+	}
+
+	/**
+	 * 所有分片的 tail 之和
+	 */
+	@Override
+	public long getTail() {
+		long tail = 0;
+		for (RingBuffer shard : shards) {
+			tail += shard.getTail();
+		}
+		return tail;
+	}
+
+	/**
+	 * 所有分片的 cursor 之和
+	 */
+	@Override
+	public long getCursor() {
+		long cursor = 0;
+		for (RingBuffer shard : shards) {
+			cursor += shard.getCursor();
+		}
+		return cursor;
+	}
+
+	/**
+	 * 所有分片的容量之和,可调整容量的分片各自扩缩容,容量可能不同
+	 */
+	@Override
+	public int getBufferSize() {
+		int bufferSize = 0;
+		for (RingBuffer shard : shards) {
+			bufferSize += shard.getBufferSize();
+		}
+		return bufferSize;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("ShardedRingBuffer [");
+		for (int i = 0; i < shards.length; i++) {
+			builder.append(i == 0 ? "" : ", ").append(shards[i]);
+		}
+		return builder.append("]").toString();
+	}
+}
@@ -0,0 +1,76 @@
+package com.github.edgewalk.uid.Buffer;
+
+import com.github.edgewalk.uid.utils.VirtualThreads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link RingBuffer} 为空时消费者的等待策略
+ * 等待期间每次醒来都会重新尝试消费,超过最大等待时间仍然为空才执行拒绝策略 {@link RejectedTakeBufferHandler}
+ */
+public enum WaitStrategy {
+
+	/**
+	 * 不等待,直接执行拒绝策略
+	 */
+	NONE {
+		@Override
+		public void idle(RingBuffer ringBuffer, long remainingNanos) {
+		}
+	},
+
+	/**
+	 * 自旋,延迟最低但会占满一个cpu核心
+	 * 虚拟线程自旋会一直占用载体线程,所以虚拟线程退化为挂起
+	 */
+	SPIN {
+		@Override
+		public void idle(RingBuffer ringBuffer, long remainingNanos) {
+			if (VirtualThreads.isVirtual(Thread.currentThread())) {
+				LockSupport.parkNanos(Math.min(PARK_NANOS, remainingNanos));
+			}
+		}
+	},
+
+	/**
+	 * 让出cpu
+	 */
+	YIELD {
+		@Override
+		public void idle(RingBuffer ringBuffer, long remainingNanos) {
+			Thread.yield();
+		}
+	},
+
+	/**
+	 * 挂起线程一小段时间
+	 */
+	PARK {
+		@Override
+		public void idle(RingBuffer ringBuffer, long remainingNanos) {
+			LockSupport.parkNanos(Math.min(PARK_NANOS, remainingNanos));
+		}
+	},
+
+	/**
+	 * 阻塞在buffer的条件上,{@link BufferPaddingExecutor} 每次发布uid之后唤醒
+	 */
+	BLOCK {
+		@Override
+		public void idle(RingBuffer ringBuffer, long remainingNanos) {
+			ringBuffer.awaitPadded(remainingNanos);
+		}
+	};
+
+	//每次挂起的时间
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * 等待一次,调用方在每次等待之后重新检查buffer
+	 *
+	 * @param ringBuffer     正在等待的buffer
+	 * @param remainingNanos 剩余的最大等待时间
+	 */
+	public abstract void idle(RingBuffer ringBuffer, long remainingNanos);
+}
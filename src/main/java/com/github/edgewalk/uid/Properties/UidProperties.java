@@ -1,6 +1,13 @@
 package com.github.edgewalk.uid.Properties;
 
 
+import com.github.edgewalk.uid.Buffer.RingBufferType;
+import com.github.edgewalk.uid.Buffer.WaitStrategy;
+import com.github.edgewalk.uid.generator.BackoffStrategy;
+import com.github.edgewalk.uid.generator.GeneratorType;
+import com.github.edgewalk.uid.generator.clock.ClockBackwardsPolicy;
+import com.github.edgewalk.uid.time.TimeSourceType;
+import com.github.edgewalk.uid.utils.TickUnit;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -20,6 +27,11 @@ public class UidProperties {
 	 */
 	private boolean enable = true;
 
+	/**
+	 * id生成器类型,默认加锁生成,LOCK_FREE为无锁生成
+	 */
+	private GeneratorType type = GeneratorType.DEFAULT;
+
 	/**
 	 * 机器id,不能重复
 	 */
@@ -40,6 +52,122 @@ public class UidProperties {
 	 */
 	private byte sequenceBits=12;
 
+	/**
+	 * 时间戳的单位: MILLISECOND 1毫秒, TEN_MILLISECONDS 10毫秒, HUNDRED_MILLISECONDS 100毫秒, SECOND 1秒,
+	 * 所有生成器(包括CACHED的填充)都使用该单位,单位越大可以使用的年限越长,单位越小每秒可以生成的id越多
+	 */
+	private TickUnit tickUnit = TickUnit.MILLISECOND;
+
+	/**
+	 * 分段生成器(STRIPED)的段号所占位数,从序列号中划分,0表示按cpu核数自动计算
+	 */
+	private byte stripeBits = 0;
+
+	/**
+	 * 毫秒内序列号用完时,逻辑时间最多可以领先系统时间的毫秒数(借用未来时间),0表示不借用,等待下一毫秒
+	 */
+	private long maxBorrowMillis = 0L;
+
+	/**
+	 * 借用预算用完后等待下一毫秒的退避策略: SPIN 自旋, YIELD 让出cpu, PARK 挂起线程
+	 */
+	private BackoffStrategy backoff = BackoffStrategy.SPIN;
+
+	/**
+	 * 时钟回退处理策略: FAIL_FAST 直接拒绝, PARK 挂起等待时钟追上, BORROW 沿用上次的时间戳继续生成, BACKUP_WORKER 切换到备用机器id
+	 */
+	private ClockBackwardsPolicy clockBackwardsPolicy = ClockBackwardsPolicy.FAIL_FAST;
+
+	/**
+	 * PARK/BORROW 策略可以容忍的最大回退毫秒数
+	 */
+	private long maxBackwardsMillis = 10L;
+
+	/**
+	 * BACKUP_WORKER 策略使用的备用机器id,不能与workId重复,-1表示没有
+	 */
+	private int backupWorkId = -1;
+
+	/**
+	 * 每个线程一次租用的序列号数量(例如64),线程在同一毫秒内从租约中直接分配id,0表示不租用
+	 */
+	private int leaseSize = 0;
+
+	/**
+	 * 时钟源: SYSTEM 系统时钟, CACHED 后台线程每毫秒刷新的缓存时钟, MONOTONIC 基于nanoTime的单调时钟
+	 */
+	private TimeSourceType timeSource = TimeSourceType.SYSTEM;
+
+	/**
+	 * CachedUidGenerator 的环形缓存区: FLAGGED 使用单独的flags数组, SEQUENCED 在槽位中保存序号戳,消费时只读取一个槽位,
+	 * OFF_HEAP 与 SEQUENCED 相同但槽位保存在堆外内存中,适合很大的buffer
+	 */
+	private RingBufferType ringBufferType = RingBufferType.FLAGGED;
+
+	/**
+	 * CachedUidGenerator 的环形缓存区分片数(2的幂),每个分片填充互不重叠的序列号区间,主分片为空时从其他分片窃取,
+	 * 1表示不分片,0表示每个cpu核心一个分片
+	 */
+	private int ringBufferShards = 1;
+
+	/**
+	 * CachedUidGenerator 的环形缓存区是否自动调整容量: 消费速度多次让剩余uid低于填充阈值时扩容,持续空闲时缩容
+	 */
+	private boolean ringBufferAdaptive = false;
+
+	/**
+	 * 自动调整容量时的最小和最大容量,容量 = 每个时间戳单位的序列号数量 << boostPower
+	 */
+	private int ringBufferMinBoostPower = 1;
+	private int ringBufferMaxBoostPower = 6;
+
+	/**
+	 * 连续多少秒没有填充时缩容
+	 */
+	private int ringBufferShrinkIdleSeconds = 300;
+
+	/**
+	 * CachedUidGenerator 的环形缓存区为空时的等待策略: NONE 直接拒绝, SPIN 自旋, YIELD 让出cpu, PARK 挂起线程,
+	 * BLOCK 阻塞到填充器发布uid
+	 */
+	private WaitStrategy takeWaitStrategy = WaitStrategy.NONE;
+
+	/**
+	 * 环形缓存区为空时最多等待的微秒数,超时后执行拒绝策略
+	 */
+	private long takeMaxWaitMicros = 10000L;
+
+	/**
+	 * CachedUidGenerator 填充的时间戳最多领先系统时间的秒数,达到后暂停填充到下一个时间戳单位,0表示不限制
+	 */
+	private long maxLookAheadSeconds = 0L;
+
+	/**
+	 * CachedUidGenerator 是否根据消费速度(EWMA)动态调整填充阈值和主动填充间隔
+	 */
+	private boolean adaptivePadding = false;
+
+	/**
+	 * 动态调整时填充阈值的最小和最大百分比
+	 */
+	private int minPaddingFactor = 10;
+	private int maxPaddingFactor = 90;
+
+	/**
+	 * CachedUidGenerator 填充时同时生成uid的线程数,每个线程生成不同的时间戳单位,按时间戳的顺序发布,1表示只使用填充线程
+	 */
+	private int paddingParallelism = 1;
+
+	/**
+	 * CachedUidGenerator 每个线程本地缓存的uid数量(例如32-256),一次批量认领后直接从线程本地数组中分配,0表示不缓存
+	 */
+	private int threadCacheSize = 0;
+
+	/**
+	 * 线程本地缓存的uid最多保留的秒数,超过后丢弃剩余的uid重新认领,0表示不限制
+	 */
+	private long threadCacheMaxAge = 0L;
+
 	/**
 	 * 开始生成uid的时间
 	 */
@@ -3,6 +3,8 @@ package com.github.edgewalk.uid.autoconfiguration;
 import com.github.edgewalk.uid.Properties.UidProperties;
 import com.github.edgewalk.uid.generator.UidGenerator;
 import com.github.edgewalk.uid.generator.impl.DefaultUidGenerator;
+import com.github.edgewalk.uid.generator.impl.LockFreeUidGenerator;
+import com.github.edgewalk.uid.generator.impl.StripedUidGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -25,6 +27,13 @@ public class UidAutoConfiguration {
 	@Bean
 	@ConditionalOnMissingBean  //当Spring Context中不存在该Bean时
 	public UidGenerator uidGenerator() {
-		return new DefaultUidGenerator(uidProperties);
+		switch (uidProperties.getType()) {
+			case LOCK_FREE:
+				return new LockFreeUidGenerator(uidProperties);
+			case STRIPED:
+				return new StripedUidGenerator(uidProperties);
+			default:
+				return new DefaultUidGenerator(uidProperties);
+		}
 	}
 }
@@ -0,0 +1,53 @@
+package com.github.edgewalk.uid.generator;
+
+import com.github.edgewalk.uid.utils.VirtualThreads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 等待下一毫秒时的退避策略
+ */
+public enum BackoffStrategy {
+
+	/**
+	 * 自旋,延迟最低但会占满一个cpu核心
+	 * 虚拟线程自旋会一直占用载体线程,所以虚拟线程退化为挂起
+	 */
+	SPIN {
+		@Override
+		public void idle() {
+			if (VirtualThreads.isVirtual(Thread.currentThread())) {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+	},
+
+	/**
+	 * 让出cpu
+	 */
+	YIELD {
+		@Override
+		public void idle() {
+			Thread.yield();
+		}
+	},
+
+	/**
+	 * 挂起线程一小段时间
+	 */
+	PARK {
+		@Override
+		public void idle() {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	};
+
+	//每次挂起的时间
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	/**
+	 * 等待一次,调用方在每次等待之后重新读取时钟
+	 */
+	public abstract void idle();
+}
@@ -0,0 +1,28 @@
+package com.github.edgewalk.uid.generator;
+
+/**
+ * id生成器类型
+ */
+public enum GeneratorType {
+
+	/**
+	 * 默认生成器,nextId()加锁
+	 *
+	 * @see com.github.edgewalk.uid.generator.impl.DefaultUidGenerator
+	 */
+	DEFAULT,
+
+	/**
+	 * 无锁生成器,通过CAS推进打包状态
+	 *
+	 * @see com.github.edgewalk.uid.generator.impl.LockFreeUidGenerator
+	 */
+	LOCK_FREE,
+
+	/**
+	 * 分段无锁生成器,按线程把序列号空间分散到多个段
+	 *
+	 * @see com.github.edgewalk.uid.generator.impl.StripedUidGenerator
+	 */
+	STRIPED
+}
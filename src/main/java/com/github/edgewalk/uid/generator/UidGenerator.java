@@ -3,6 +3,8 @@ package com.github.edgewalk.uid.generator;
 
 import com.github.edgewalk.uid.exception.UidGenerateException;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 唯一id生成器
  */
@@ -16,6 +18,49 @@ public interface UidGenerator {
 	 */
 	long getUid() throws UidGenerateException;
 
+	/**
+	 * 异步获取一个唯一的ID,生成失败时返回的future以 {@link UidGenerateException} 异常结束
+	 * 默认直接调用 {@link #getUid()},序列号用完时最多等待到下一毫秒;
+	 * {@link com.github.edgewalk.uid.generator.impl.CachedUidGenerator} 在buffer为空时不会阻塞,而是在填充完成后再结束future
+	 *
+	 * @return id
+	 */
+	default CompletableFuture<Long> getUidAsync() {
+		CompletableFuture<Long> future = new CompletableFuture<>();
+		try {
+			future.complete(getUid());
+		} catch (UidGenerateException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * 批量获取 n 个唯一的ID
+	 *
+	 * @param n 数量
+	 * @return id数组
+	 * @throws UidGenerateException
+	 */
+	default long[] getUids(int n) throws UidGenerateException {
+		long[] uids = new long[n];
+		fill(uids);
+		return uids;
+	}
+
+	/**
+	 * 使用唯一的ID填满调用方提供的数组
+	 * 默认逐个调用 {@link #getUid()},实现类可以一次性预留连续的序列号
+	 *
+	 * @param dst 目标数组
+	 * @throws UidGenerateException
+	 */
+	default void fill(long[] dst) throws UidGenerateException {
+		for (int i = 0; i < dst.length; i++) {
+			dst[i] = getUid();
+		}
+	}
+
 	/**
 	 * 解析uid获得原始信息
 	 * 例如: 时间戳,机器id,序列号
@@ -0,0 +1,136 @@
+package com.github.edgewalk.uid.generator;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.util.Assert;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 {@link UidGenerator#getUidAsync()} 的无限id流 (reactive-streams)
+ * 只按照订阅者请求的数量生成id,id暂时不可用时(例如 CachedUidGenerator 的buffer为空)不阻塞调用线程,
+ * 在future结束的线程中继续发送; 生成失败时以 onError 结束
+ * 例如在WebFlux中: Flux.from(new UidPublisher(uidGenerator)).take(10)
+ */
+public class UidPublisher implements Publisher<Long> {
+
+	private final UidGenerator uidGenerator;
+
+	public UidPublisher(UidGenerator uidGenerator) {
+		Assert.notNull(uidGenerator, "UidGenerator can't be null!");
+		this.uidGenerator = uidGenerator;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super Long> subscriber) {
+		// reactive-streams 规范 1.9: 订阅者为空时抛出 NullPointerException
+		Objects.requireNonNull(subscriber, "Subscriber can't be null!");
+		subscriber.onSubscribe(new UidSubscription(uidGenerator, subscriber));
+	}
+
+	/**
+	 * 每个订阅者一个订阅,通过wip计数保证同一时间只有一个线程发送,onError 同样只在发送循环中调用
+	 */
+	private static final class UidSubscription implements Subscription {
+
+		private final UidGenerator uidGenerator;
+		private final Subscriber<? super Long> subscriber;
+		//尚未满足的请求数量
+		private final AtomicLong requested = new AtomicLong();
+		//正在发送的线程数
+		private final AtomicInteger wip = new AtomicInteger();
+		//还没有结束的id,占用一个请求数量
+		private CompletableFuture<Long> pending;
+		private volatile boolean cancelled;
+		//非法的请求数量,由发送循环以 onError 结束
+		private volatile Throwable error;
+		private boolean done;
+
+		private UidSubscription(UidGenerator uidGenerator, Subscriber<? super Long> subscriber) {
+			this.uidGenerator = uidGenerator;
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				// reactive-streams 规范 3.9: 以 onError 结束,不能与 onNext 同时调用
+				error = new IllegalArgumentException("Request must be positive, but was " + n);
+				drain();
+				return;
+			}
+			long current;
+			do {
+				current = requested.get();
+				if (current == Long.MAX_VALUE) {
+					break;
+				}
+			} while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				if (!cancelled && !done && error != null) {
+					done = true;
+					subscriber.onError(error);
+				}
+				while (!cancelled && !done) {
+					CompletableFuture<Long> future = pending;
+					if (future == null) {
+						if (requested.get() == 0) {
+							break;
+						}
+						future = uidGenerator.getUidAsync();
+					}
+					if (!future.isDone()) {
+						// 结束后重新进入drain
+						if (pending == null) {
+							pending = future;
+							future.whenComplete((uid, e) -> drain());
+						}
+						break;
+					}
+					pending = null;
+					emit(future);
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void emit(CompletableFuture<Long> future) {
+			long uid;
+			try {
+				uid = future.join();
+			} catch (CompletionException e) {
+				done = true;
+				subscriber.onError(e.getCause());
+				return;
+			} catch (CancellationException e) {
+				// future被取消,同样结束发送,不能从drain中抛出
+				done = true;
+				subscriber.onError(e);
+				return;
+			}
+			if (requested.get() != Long.MAX_VALUE) {
+				requested.decrementAndGet();
+			}
+			subscriber.onNext(uid);
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.github.edgewalk.uid.generator.clock;
+
+import com.github.edgewalk.uid.generator.impl.DefaultUidGenerator;
+
+/**
+ * 切换备用机器id: 时钟回退后改用预留的备用机器id,从当前时间继续生成
+ * 备用机器id上一次使用的时间戳也大于当前时间时(例如连续回退),无法切换,生成器拒绝生成
+ *
+ * @see DefaultUidGenerator#switchWorker(long)
+ */
+public class BackupWorkerClockBackwardsHandler implements ClockBackwardsHandler {
+
+	@Override
+	public long handle(DefaultUidGenerator generator, long expectedTimestamp, long timestamp) {
+		generator.switchWorker(timestamp);
+		return timestamp;
+	}
+}
@@ -0,0 +1,22 @@
+package com.github.edgewalk.uid.generator.clock;
+
+import com.github.edgewalk.uid.generator.impl.DefaultUidGenerator;
+
+/**
+ * 借用模式: 回退在可以容忍的范围内时,沿用上一次的时间戳继续生成,
+ * 序列号用完后逻辑时间继续向前推进,直到系统时钟追上,期间不阻塞调用方
+ */
+public class BorrowClockBackwardsHandler implements ClockBackwardsHandler {
+
+	//可以容忍的最大回退时间戳单位数
+	private final long maxBackwardsTicks;
+
+	public BorrowClockBackwardsHandler(long maxBackwardsTicks) {
+		this.maxBackwardsTicks = maxBackwardsTicks;
+	}
+
+	@Override
+	public long handle(DefaultUidGenerator generator, long expectedTimestamp, long timestamp) {
+		return expectedTimestamp - timestamp <= maxBackwardsTicks ? expectedTimestamp : timestamp;
+	}
+}
@@ -0,0 +1,22 @@
+package com.github.edgewalk.uid.generator.clock;
+
+import com.github.edgewalk.uid.generator.impl.DefaultUidGenerator;
+
+/**
+ * 时钟回退处理策略
+ * 当系统时钟落后于生成器上一次使用的时间戳(并且超出了借用预算)时调用
+ * 返回值是生成器继续生成id使用的时间戳,生成器会重新检查自己的状态,仍然落后时拒绝生成
+ */
+@FunctionalInterface
+public interface ClockBackwardsHandler {
+
+	/**
+	 * 处理时钟回退
+	 *
+	 * @param generator         发生时钟回退的生成器
+	 * @param expectedTimestamp 生成器希望继续使用的时间戳
+	 * @param timestamp         当前时间戳,小于 expectedTimestamp
+	 * @return 继续生成id使用的时间戳
+	 */
+	long handle(DefaultUidGenerator generator, long expectedTimestamp, long timestamp);
+}
@@ -0,0 +1,55 @@
+package com.github.edgewalk.uid.generator.clock;
+
+/**
+ * 内置的时钟回退处理策略
+ */
+public enum ClockBackwardsPolicy {
+
+	/**
+	 * 直接拒绝
+	 */
+	FAIL_FAST {
+		@Override
+		public ClockBackwardsHandler create(long maxBackwardsTicks) {
+			return new FailFastClockBackwardsHandler();
+		}
+	},
+
+	/**
+	 * 挂起等待时钟追上
+	 */
+	PARK {
+		@Override
+		public ClockBackwardsHandler create(long maxBackwardsTicks) {
+			return new ParkClockBackwardsHandler(maxBackwardsTicks);
+		}
+	},
+
+	/**
+	 * 沿用上一次的时间戳继续生成
+	 */
+	BORROW {
+		@Override
+		public ClockBackwardsHandler create(long maxBackwardsTicks) {
+			return new BorrowClockBackwardsHandler(maxBackwardsTicks);
+		}
+	},
+
+	/**
+	 * 切换到备用机器id
+	 */
+	BACKUP_WORKER {
+		@Override
+		public ClockBackwardsHandler create(long maxBackwardsTicks) {
+			return new BackupWorkerClockBackwardsHandler();
+		}
+	};
+
+	/**
+	 * 创建对应的处理器
+	 *
+	 * @param maxBackwardsTicks 可以容忍的最大回退时间戳单位数(PARK/BORROW)
+	 * @return 时钟回退处理器
+	 */
+	public abstract ClockBackwardsHandler create(long maxBackwardsTicks);
+}
@@ -0,0 +1,14 @@
+package com.github.edgewalk.uid.generator.clock;
+
+import com.github.edgewalk.uid.generator.impl.DefaultUidGenerator;
+
+/**
+ * 快速失败: 不做任何处理,生成器直接拒绝生成id
+ */
+public class FailFastClockBackwardsHandler implements ClockBackwardsHandler {
+
+	@Override
+	public long handle(DefaultUidGenerator generator, long expectedTimestamp, long timestamp) {
+		return timestamp;
+	}
+}
@@ -0,0 +1,34 @@
+package com.github.edgewalk.uid.generator.clock;
+
+import com.github.edgewalk.uid.generator.impl.DefaultUidGenerator;
+import com.github.edgewalk.uid.utils.TickUnit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 挂起等待: 回退在可以容忍的范围内时,挂起线程直到时钟追上,最多等待 maxParkTicks 个时间戳单位
+ */
+public class ParkClockBackwardsHandler implements ClockBackwardsHandler {
+
+	//最多等待的时间戳单位数
+	private final long maxParkTicks;
+
+	public ParkClockBackwardsHandler(long maxParkTicks) {
+		this.maxParkTicks = maxParkTicks;
+	}
+
+	@Override
+	public long handle(DefaultUidGenerator generator, long expectedTimestamp, long timestamp) {
+		if (expectedTimestamp - timestamp > maxParkTicks) {
+			return timestamp;
+		}
+		TickUnit tickUnit = generator.getTickUnit();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tickUnit.toMillis(maxParkTicks));
+		while (timestamp < expectedTimestamp && System.nanoTime() < deadline) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(tickUnit.toMillis(expectedTimestamp - timestamp)));
+			timestamp = generator.getCurrentTick();
+		}
+		return timestamp;
+	}
+}
@@ -15,21 +15,38 @@
  */
 package com.github.edgewalk.uid.generator.impl;
 
+import com.github.edgewalk.uid.Buffer.AdaptivePaddingController;
 import com.github.edgewalk.uid.Buffer.BufferPaddingExecutor;
+import com.github.edgewalk.uid.Buffer.PaddingWorker;
 import com.github.edgewalk.uid.Buffer.RejectedPutBufferHandler;
 import com.github.edgewalk.uid.Buffer.RejectedTakeBufferHandler;
+import com.github.edgewalk.uid.Buffer.ResizableRingBuffer;
 import com.github.edgewalk.uid.Buffer.RingBuffer;
+import com.github.edgewalk.uid.Buffer.RingBufferType;
+import com.github.edgewalk.uid.Buffer.ShardedRingBuffer;
+import com.github.edgewalk.uid.Buffer.WaitStrategy;
 import com.github.edgewalk.uid.Properties.UidProperties;
 import com.github.edgewalk.uid.exception.UidGenerateException;
 import com.github.edgewalk.uid.generator.UidGenerator;
 import com.github.edgewalk.uid.utils.BitsAllocator;
+import com.github.edgewalk.uid.utils.NamingThreadFactory;
+import com.github.edgewalk.uid.utils.TickUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.Assert;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents a cached implementation of {@link UidGenerator} extends
@@ -45,12 +62,36 @@ import java.util.List;
  * <li><b>scheduleInterval:</b> Padding buffer in a schedule, specify padding buffer interval, Unit as second
  * <li><b>rejectedPutBufferHandler:</b> Policy for rejected put buffer. Default as discard put request, just do logging
  * <li><b>rejectedTakeBufferHandler:</b> Policy for rejected take buffer. Default as throwing up an exception
+ * <li><b>ringBufferType:</b> {@link RingBufferType#FLAGGED} keeps a separate flags array,
+ * {@link RingBufferType#SEQUENCED} stamps each slot with its sequence, {@link RingBufferType#OFF_HEAP} keeps the
+ * stamped slots in direct memory. Default as FLAGGED
+ * <li><b>ringBufferShards:</b> Number of {@link ShardedRingBuffer} shards, 1 for a single RingBuffer, 0 for one per core
+ * <li><b>ringBufferAdaptive:</b> Wrap each RingBuffer in a {@link ResizableRingBuffer}, growing it up to
+ * <b>ringBufferMaxBoostPower</b> under repeated padding and shrinking it down to <b>ringBufferMinBoostPower</b> after
+ * <b>ringBufferShrinkIdleSeconds</b> without padding. Default as false
+ * <li><b>maxLookAheadSeconds:</b> Bound of the padded timestamps ahead of the wall clock, padding pauses until the
+ * next tick when it is reached and takes run the wait strategy. Default as 0, unbounded
+ * <li><b>adaptivePadding:</b> Drive each RingBuffer with an {@link AdaptivePaddingController}, which tracks the
+ * consumption rate and moves the padding threshold between <b>minPaddingFactor</b> and <b>maxPaddingFactor</b> percent
+ * and the proactive padding period up to the schedule interval. Default as false
+ * <li><b>paddingParallelism:</b> Threads generating distinct ticks concurrently during padding, published in
+ * tick order. Default as 1, only the padding thread
+ * <li><b>tickUnit:</b> {@link TickUnit} of the timestamp, shared with {@link DefaultUidGenerator} so both parse the
+ * same way, each padding slice holds the UIDs of one tick. Default as MILLISECOND
+ * <li><b>takeWaitStrategy:</b> {@link WaitStrategy} of a take from an empty RingBuffer before the rejected take policy
+ * runs, bounded by <b>takeMaxWaitMicros</b>. Default as NONE, rejecting at once
+ * <li><b>waiterExecutor:</b> Executor completing the futures of {@link #getUidAsync()} that wait for padding, so their
+ * dependent stages never run on the padding thread. Default as {@link ForkJoinPool#commonPool()}
  *
  * @author yutianbao
  */
 public class CachedUidGenerator extends DefaultUidGenerator implements DisposableBean {
 	private static final Logger LOGGER = LoggerFactory.getLogger(CachedUidGenerator.class);
 	private static final int DEFAULT_BOOST_POWER = 3;
+	private static final String RESIZE_SCHEDULE_NAME = "RingBuffer-Resize-Schedule";
+	private static final long RESIZE_CHECK_INTERVAL = 1L;
+	private static final String PADDING_CONTROL_NAME = "RingBuffer-Padding-Controller";
+	private static final long PADDING_CONTROL_TICK_MILLIS = 100L;
 
 	/**
 	 * Spring properties
@@ -61,15 +102,68 @@ public class CachedUidGenerator extends DefaultUidGenerator implements Disposabl
 
 	private RejectedPutBufferHandler rejectedPutBufferHandler;
 	private RejectedTakeBufferHandler rejectedTakeBufferHandler;
+	private RingBufferType ringBufferType;
+	private int ringBufferShards;
+	private boolean ringBufferAdaptive;
+	private int ringBufferMinBoostPower;
+	private int ringBufferMaxBoostPower;
+	private int ringBufferShrinkIdleSeconds;
+	private int paddingParallelism;
+	private long maxLookAheadSeconds;
+	private boolean adaptivePadding;
+	private int minPaddingFactor;
+	private int maxPaddingFactor;
+	private WaitStrategy takeWaitStrategy;
+	private long takeMaxWaitMicros;
+	private int threadCacheSize;
+	private long threadCacheMaxAgeMillis;
 
 	/**
 	 * RingBuffer
 	 */
 	private RingBuffer ringBuffer;
-	private BufferPaddingExecutor bufferPaddingExecutor;
+	private BufferPaddingExecutor[] bufferPaddingExecutors;
+	private ResizableRingBuffer[] resizableBuffers = new ResizableRingBuffer[0];
+	private ScheduledExecutorService resizeSchedule;
+	private AdaptivePaddingController[] paddingControllers = new AdaptivePaddingController[0];
+	private ScheduledExecutorService paddingControlSchedule;
+
+	/**
+	 * Async requests waiting for the next padding, completed in FIFO order on the waiter executor.
+	 * The padding thread only schedules the completion task, at most one is queued at a time
+	 */
+	private final Queue<CompletableFuture<Long>> waiters = new ConcurrentLinkedQueue<>();
+	private Executor waiterExecutor = ForkJoinPool.commonPool();
+	private final AtomicBoolean waitersScheduled = new AtomicBoolean();
+	private final Runnable completeWaitersTask = this::runCompleteWaiters;
+
+	/**
+	 * Per-thread front caches refilled from the RingBuffer with one batch claim, and their metrics
+	 */
+	private final ThreadLocal<ThreadCache> threadCaches = ThreadLocal.withInitial(() -> new ThreadCache(threadCacheSize));
+	private final LongAdder threadCacheHits = new LongAdder();
+	private final LongAdder threadCacheMisses = new LongAdder();
+	private final LongAdder threadCacheExpired = new LongAdder();
 
 	public CachedUidGenerator(UidProperties uidProperties) {
 		super(uidProperties);
+		this.ringBufferType = uidProperties.getRingBufferType();
+		this.ringBufferShards = uidProperties.getRingBufferShards();
+		this.ringBufferAdaptive = uidProperties.isRingBufferAdaptive();
+		this.ringBufferMinBoostPower = uidProperties.getRingBufferMinBoostPower();
+		this.ringBufferMaxBoostPower = uidProperties.getRingBufferMaxBoostPower();
+		this.ringBufferShrinkIdleSeconds = uidProperties.getRingBufferShrinkIdleSeconds();
+		this.paddingParallelism = uidProperties.getPaddingParallelism();
+		this.maxLookAheadSeconds = uidProperties.getMaxLookAheadSeconds();
+		this.adaptivePadding = uidProperties.isAdaptivePadding();
+		this.minPaddingFactor = uidProperties.getMinPaddingFactor();
+		this.maxPaddingFactor = uidProperties.getMaxPaddingFactor();
+		this.takeWaitStrategy = uidProperties.getTakeWaitStrategy();
+		this.takeMaxWaitMicros = uidProperties.getTakeMaxWaitMicros();
+		this.threadCacheSize = uidProperties.getThreadCacheSize();
+		Assert.isTrue(threadCacheSize >= 0, "Thread cache size can't be negative!");
+		this.threadCacheMaxAgeMillis = TimeUnit.SECONDS.toMillis(uidProperties.getThreadCacheMaxAge());
+		Assert.isTrue(threadCacheMaxAgeMillis >= 0, "Thread cache max age can't be negative!");
 		// initialize RingBuffer & RingBufferPaddingExecutor
 		this.initRingBuffer();
 		LOGGER.info("Initialized RingBuffer successfully.");
@@ -78,13 +172,78 @@ public class CachedUidGenerator extends DefaultUidGenerator implements Disposabl
 	@Override
 	public long getUid() {
 		try {
-			return ringBuffer.take();
-		} catch (Exception e) {
-			LOGGER.error("Generate unique id exception. ", e);
-			throw new UidGenerateException(e);
+			return threadCacheSize > 0 ? nextCachedId() : ringBuffer.take();
+		} catch (UidGenerateException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw generateFailed(e);
 		}
 	}
 
+	/**
+	 * Take a UID from the current thread's cache, refill it from the RingBuffer with one batch claim when it is empty
+	 * or older than {@link #threadCacheMaxAgeMillis} (the rest of an expired batch is dropped, UIDs stay unique).
+	 * Hits are only published when the batch is refilled, so the hit path touches no shared state
+	 */
+	protected long nextCachedId() {
+		ThreadCache cache = threadCaches.get();
+		if (cache.next < cache.count) {
+			if (threadCacheMaxAgeMillis == 0 || timeSource.currentTimeMillis() - cache.refillTime <= threadCacheMaxAgeMillis) {
+				return cache.uids[cache.next++];
+			}
+			threadCacheExpired.add(cache.count - cache.next);
+		}
+		if (cache.next > 1) {
+			// the first UID of each batch is counted as a miss
+			threadCacheHits.add(cache.next - 1);
+		}
+		threadCacheMisses.increment();
+		// reset before the claim, a rejected take must not leave the old batch available
+		cache.next = 0;
+		cache.count = 0;
+		cache.count = ringBuffer.take(cache.uids, 0, cache.uids.length);
+		cache.next = 1;
+		if (threadCacheMaxAgeMillis > 0) {
+			cache.refillTime = timeSource.currentTimeMillis();
+		}
+		return cache.uids[0];
+	}
+
+	/**
+	 * 从RingBuffer中批量认领,buffer中剩余的uid足够时只需要一次认领
+	 */
+	@Override
+	public void fill(long[] dst) {
+		try {
+			int pos = 0;
+			while (pos < dst.length) {
+				pos += ringBuffer.take(dst, pos, dst.length - pos);
+			}
+		} catch (UidGenerateException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw generateFailed(e);
+		}
+	}
+
+	/**
+	 * Never blocks or throws when the buffer is empty: the returned future is completed on the {@link #waiterExecutor}
+	 * after {@link BufferPaddingExecutor} refills the RingBuffer, dependent stages without an executor run there and
+	 * never hold up the padding thread
+	 */
+	@Override
+	public CompletableFuture<Long> getUidAsync() {
+		long[] uid = new long[1];
+		if (waiters.isEmpty() && ringBuffer.poll(uid, 0, 1) == 1) {
+			return CompletableFuture.completedFuture(uid[0]);
+		}
+		CompletableFuture<Long> future = new CompletableFuture<>();
+		waiters.offer(future);
+		// the buffer may have been refilled before the future was queued
+		scheduleCompleteWaiters();
+		return future;
+	}
+
 	@Override
 	public String parseUid(long uid) {
 		return super.parseUid(uid);
@@ -92,61 +251,312 @@ public class CachedUidGenerator extends DefaultUidGenerator implements Disposabl
 
 	@Override
 	public void destroy() throws Exception {
-		bufferPaddingExecutor.shutdown();
+		if (paddingControlSchedule != null) {
+			paddingControlSchedule.shutdownNow();
+			paddingControlSchedule.awaitTermination(RESIZE_CHECK_INTERVAL, TimeUnit.SECONDS);
+		}
+		if (resizeSchedule != null) {
+			resizeSchedule.shutdownNow();
+			resizeSchedule.awaitTermination(RESIZE_CHECK_INTERVAL, TimeUnit.SECONDS);
+		}
+		for (BufferPaddingExecutor bufferPaddingExecutor : bufferPaddingExecutors) {
+			bufferPaddingExecutor.shutdown();
+		}
+		CompletableFuture<Long> future;
+		while ((future = waiters.poll()) != null) {
+			future.completeExceptionally(new UidGenerateException("CachedUidGenerator is destroyed"));
+		}
+		// free off-heap slots, the generator can't be used any more
+		ringBuffer.release();
+		super.destroy();
 	}
 
 	/**
-	 * Get the UIDs in the same specified second under the max sequence
+	 * Write the UIDs in the same specified tick for a slice of the sequence space into the array, without boxing
 	 *
-	 * @param currentSecond
-	 * @return UID list, size of {@link BitsAllocator#getMaxSequence()} + 1
+	 * @param currentTick   timestamp in {@link #tickUnit}
+	 * @param firstSequence first sequence of the slice
+	 * @param uids          array to fill from the start, its length is the size of the slice
+	 * @return size of the slice
 	 */
-	protected List<Long> nextIdsForOneSecond(long currentSecond) {
-		// Initialize result list size of (max sequence + 1)
-		int listSize = (int) bitsAllocator.getMaxSequence() + 1;
-		List<Long> uidList = new ArrayList<>(listSize);
+	protected int nextIdsForOneTick(long currentTick, long firstSequence, long[] uids) {
+		// Allocate the first sequence of the slice, the others can be calculated with the offset
+		long firstSeqUid = bitsAllocator.allocate(currentTick - twepoch, workerId, firstSequence);
+		for (int offset = 0; offset < uids.length; offset++) {
+			uids[offset] = firstSeqUid + offset;
+		}
+		return uids.length;
+	}
 
-		// Allocate the first sequence of the second, the others can be calculated with the offset
-		long firstSeqUid = bitsAllocator.allocate(currentSecond - twepoch, workerId, 0L);
-		for (int offset = 0; offset < listSize; offset++) {
-			uidList.add(firstSeqUid + offset);
+	/**
+	 * Hand the waiting futures to the waiter executor, called by the padding thread after each padding.
+	 * Completes them on the calling thread only when the executor rejects the task
+	 */
+	private void scheduleCompleteWaiters() {
+		if (waiters.isEmpty() || !waitersScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			waiterExecutor.execute(completeWaitersTask);
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Waiter executor rejected completing async requests, complete them on {}", Thread.currentThread().getName());
+			runCompleteWaiters();
 		}
+	}
 
-		return uidList;
+	/**
+	 * Clear the schedule flag before draining, a padding that finishes meanwhile schedules another task
+	 */
+	private void runCompleteWaiters() {
+		waitersScheduled.set(false);
+		completeWaiters();
 	}
 
 	/**
-	 * Initialize RingBuffer & RingBufferPaddingExecutor
+	 * Complete the waiting futures with UIDs in the buffer, stop when the buffer is empty again.
+	 * A UID taken by a racing caller after the queue is drained is skipped, which keeps UIDs unique
 	 */
-	private void initRingBuffer() {
-		// initialize RingBuffer
-		int bufferSize = ((int) bitsAllocator.getMaxSequence() + 1) << boostPower;
-		this.ringBuffer = new RingBuffer(bufferSize, paddingFactor);
-		LOGGER.info("Initialized ring buffer size:{}, paddingFactor:{}", bufferSize, paddingFactor);
+	private void completeWaiters() {
+		if (waiters.isEmpty()) {
+			return;
+		}
+		long[] uid = new long[1];
+		while (!waiters.isEmpty() && ringBuffer.poll(uid, 0, 1) == 1) {
+			CompletableFuture<Long> future = waiters.poll();
+			if (future == null) {
+				return;
+			}
+			future.complete(uid[0]);
+		}
+	}
 
-		// initialize RingBufferPaddingExecutor
+	/**
+	 * Initialize RingBuffer & RingBufferPaddingExecutor.
+	 * In sharded mode every shard is an independent RingBuffer padded with its own disjoint slice of the sequence
+	 * space (the high sequence bits hold the shard index), the padding executors share one padding thread
+	 */
+	private void initRingBuffer() {
+		int shards = shardCount();
+		int shardSequenceBits = sequenceBits - Integer.numberOfTrailingZeros(shards);
+		int shardSequences = 1 << shardSequenceBits;
+		int bufferSize = shardSequences << boostPower;
 		boolean usingSchedule = (scheduleInterval != null);
-		this.bufferPaddingExecutor = new BufferPaddingExecutor(ringBuffer, this::nextIdsForOneSecond, usingSchedule);
-		if (usingSchedule) {
-			bufferPaddingExecutor.setScheduleInterval(scheduleInterval);
-		}
+		PaddingWorker paddingWorker = new PaddingWorker(paddingParallelism);
+
+		RingBuffer[] buffers = new RingBuffer[shards];
+		this.bufferPaddingExecutors = new BufferPaddingExecutor[shards];
+		for (int i = 0; i < shards; i++) {
+			// initialize RingBuffer
+			long firstSequence = (long) i << shardSequenceBits;
+			buffers[i] = ringBufferAdaptive ? createResizableBuffer(shardSequences, bufferSize) : ringBufferType.create(bufferSize, paddingFactor);
 
+			// initialize RingBufferPaddingExecutor
+			BufferPaddingExecutor bufferPaddingExecutor = new BufferPaddingExecutor(buffers[i],
+					(tick, uids) -> nextIdsForOneTick(tick, firstSequence, uids), shardSequences, tickUnit, timeSource,
+					usingSchedule, paddingWorker);
+			if (usingSchedule) {
+				bufferPaddingExecutor.setScheduleInterval(scheduleInterval);
+			}
+			bufferPaddingExecutor.setMaxLookAheadSeconds(maxLookAheadSeconds);
+			buffers[i].setBufferPaddingExecutor(bufferPaddingExecutor);
+			bufferPaddingExecutor.addPaddedListener(this::scheduleCompleteWaiters);
+			bufferPaddingExecutors[i] = bufferPaddingExecutor;
+		}
+		this.ringBuffer = shards == 1 ? buffers[0] : new ShardedRingBuffer(buffers);
+		LOGGER.info("Initialized {} ring buffer shards:{}, size:{}, paddingFactor:{}", ringBufferType, shards, buffers[0].getBufferSize(), paddingFactor);
 		LOGGER.info("Initialized BufferPaddingExecutor. Using schdule:{}, interval:{}", usingSchedule, scheduleInterval);
 
 		// set rejected put/take handle policy
-		this.ringBuffer.setBufferPaddingExecutor(bufferPaddingExecutor);
 		if (rejectedPutBufferHandler != null) {
-			this.ringBuffer.setRejectedPutHandler(rejectedPutBufferHandler);
+			for (RingBuffer buffer : buffers) {
+				buffer.setRejectedPutHandler(rejectedPutBufferHandler);
+			}
 		}
 		if (rejectedTakeBufferHandler != null) {
 			this.ringBuffer.setRejectedTakeHandler(rejectedTakeBufferHandler);
 		}
+		this.ringBuffer.setWaitStrategy(takeWaitStrategy, takeMaxWaitMicros, TimeUnit.MICROSECONDS);
+
+		for (BufferPaddingExecutor bufferPaddingExecutor : bufferPaddingExecutors) {
+			// fill in all slots of the RingBuffer
+			bufferPaddingExecutor.paddingBuffer();
+
+			// start buffer padding threads
+			bufferPaddingExecutor.start();
+		}
+
+		if (ringBufferAdaptive) {
+			this.resizableBuffers = new ResizableRingBuffer[shards];
+			System.arraycopy(buffers, 0, resizableBuffers, 0, shards);
+			this.resizeSchedule = Executors.newSingleThreadScheduledExecutor(new NamingThreadFactory(RESIZE_SCHEDULE_NAME, true));
+			resizeSchedule.scheduleWithFixedDelay(this::adaptRingBuffers, RESIZE_CHECK_INTERVAL, RESIZE_CHECK_INTERVAL, TimeUnit.SECONDS);
+		}
+
+		if (adaptivePadding) {
+			long maxInterval = usingSchedule ? scheduleInterval : BufferPaddingExecutor.DEFAULT_SCHEDULE_INTERVAL;
+			this.paddingControllers = new AdaptivePaddingController[shards];
+			for (int i = 0; i < shards; i++) {
+				paddingControllers[i] = new AdaptivePaddingController(buffers[i], bufferPaddingExecutors[i], minPaddingFactor,
+						maxPaddingFactor, PADDING_CONTROL_TICK_MILLIS, TimeUnit.SECONDS.toMillis(maxInterval), TimeUnit.MILLISECONDS);
+			}
+			this.paddingControlSchedule = Executors.newSingleThreadScheduledExecutor(new NamingThreadFactory(PADDING_CONTROL_NAME, true));
+			paddingControlSchedule.scheduleWithFixedDelay(this::controlPadding, PADDING_CONTROL_TICK_MILLIS, PADDING_CONTROL_TICK_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void controlPadding() {
+		for (AdaptivePaddingController controller : paddingControllers) {
+			try {
+				controller.tick();
+			} catch (RuntimeException e) {
+				LOGGER.error("Control padding failed. {}", controller, e);
+			}
+		}
+	}
+
+	/**
+	 * Adaptive RingBuffer starting at the configured boost power, clamped to the min and max boost power
+	 */
+	private ResizableRingBuffer createResizableBuffer(int sequences, int bufferSize) {
+		Assert.isTrue(ringBufferMinBoostPower > 0 && ringBufferMinBoostPower <= ringBufferMaxBoostPower,
+				"RingBuffer min boost power must be positive and not exceed the max boost power!");
+		int minBufferSize = sequences << ringBufferMinBoostPower;
+		int maxBufferSize = sequences << ringBufferMaxBoostPower;
+		int initialSize = Math.max(minBufferSize, Math.min(bufferSize, maxBufferSize));
+		int shrinkIdleChecks = (int) Math.max(1L, ringBufferShrinkIdleSeconds / RESIZE_CHECK_INTERVAL);
+		return new ResizableRingBuffer(ringBufferType, initialSize, minBufferSize, maxBufferSize, paddingFactor, shrinkIdleChecks);
+	}
+
+	private void adaptRingBuffers() {
+		for (ResizableRingBuffer buffer : resizableBuffers) {
+			try {
+				buffer.adapt();
+			} catch (RuntimeException e) {
+				LOGGER.error("Adapt ring buffer failed. {}", buffer, e);
+			}
+		}
+	}
+
+	/**
+	 * Shard count, a power of 2: 1 means a single RingBuffer, 0 means one shard per core.
+	 * Every shard keeps at least 64 sequences per tick
+	 */
+	private int shardCount() {
+		int shards = ringBufferShards > 0 ? ringBufferShards : Runtime.getRuntime().availableProcessors();
+		Assert.isTrue(shards > 0, "RingBuffer shards can't be negative!");
+		int shardBits = Integer.SIZE - Integer.numberOfLeadingZeros(shards - 1);
+		if (ringBufferShards > 0) {
+			Assert.isTrue(Integer.bitCount(shards) == 1, "RingBuffer shards must be a power of 2!");
+			Assert.isTrue(shardBits <= sequenceBits - 6, "RingBuffer shards leave less than 64 sequences per shard!");
+		}
+		return 1 << Math.min(shardBits, sequenceBits - 6);
+	}
+
+	/**
+	 * Thread cache metrics: hits are served from the thread cache (published per batch), misses refill it from the
+	 * RingBuffer, expired counts UIDs dropped for exceeding the max age
+	 */
+	public long getThreadCacheHits() {
+		return threadCacheHits.sum();
+	}
+
+	public long getThreadCacheMisses() {
+		return threadCacheMisses.sum();
+	}
+
+	public long getThreadCacheExpired() {
+		return threadCacheExpired.sum();
+	}
+
+	public double getThreadCacheHitRatio() {
+		long hits = threadCacheHits.sum();
+		long total = hits + threadCacheMisses.sum();
+		return total == 0 ? 0D : (double) hits / total;
+	}
+
+	/**
+	 * Adaptive RingBuffer metrics: resize events of all shards and the current total capacity
+	 */
+	public long getRingBufferGrowths() {
+		long growths = 0;
+		for (ResizableRingBuffer buffer : resizableBuffers) {
+			growths += buffer.getGrowths();
+		}
+		return growths;
+	}
+
+	public long getRingBufferShrinks() {
+		long shrinks = 0;
+		for (ResizableRingBuffer buffer : resizableBuffers) {
+			shrinks += buffer.getShrinks();
+		}
+		return shrinks;
+	}
 
-		// fill in all slots of the RingBuffer
-		bufferPaddingExecutor.paddingBuffer();
+	public int getRingBufferSize() {
+		return ringBuffer.getBufferSize();
+	}
 
-		// start buffer padding threads
-		bufferPaddingExecutor.start();
+	/**
+	 * Adaptive padding state: consumption rate EWMA (UIDs per second) and padding threshold summed over all shards,
+	 * and the shortest proactive padding period
+	 */
+	public double getConsumptionRate() {
+		double rate = 0D;
+		for (AdaptivePaddingController controller : paddingControllers) {
+			rate += controller.getRate();
+		}
+		return rate;
+	}
+
+	public long getPaddingThreshold() {
+		long threshold = 0;
+		for (AdaptivePaddingController controller : paddingControllers) {
+			threshold += controller.getPaddingThreshold();
+		}
+		return threshold;
+	}
+
+	public long getPaddingIntervalMillis() {
+		long interval = Long.MAX_VALUE;
+		for (AdaptivePaddingController controller : paddingControllers) {
+			interval = Math.min(interval, controller.getIntervalMillis());
+		}
+		return paddingControllers.length == 0 ? 0L : interval;
+	}
+
+	/**
+	 * Timestamp drift: the largest padded timestamp ahead of the wall clock in seconds over all shards (negative when
+	 * idle), and how many padding rounds stopped early at {@link #maxLookAheadSeconds}
+	 */
+	public long getLookAheadSeconds() {
+		long lookAhead = Long.MIN_VALUE;
+		for (BufferPaddingExecutor bufferPaddingExecutor : bufferPaddingExecutors) {
+			lookAhead = Math.max(lookAhead, bufferPaddingExecutor.getLookAheadSeconds());
+		}
+		return lookAhead;
+	}
+
+	public long getLookAheadThrottles() {
+		long throttles = 0;
+		for (BufferPaddingExecutor bufferPaddingExecutor : bufferPaddingExecutors) {
+			throttles += bufferPaddingExecutor.getThrottles();
+		}
+		return throttles;
+	}
+
+	/**
+	 * UIDs claimed by one thread, only accessed by its owner
+	 */
+	private static final class ThreadCache {
+		private final long[] uids;
+		private int next;
+		private int count;
+		private long refillTime;
+
+		private ThreadCache(int size) {
+			this.uids = new long[size];
+		}
 	}
 
 	/**
@@ -157,6 +567,11 @@ public class CachedUidGenerator extends DefaultUidGenerator implements Disposabl
 		this.boostPower = boostPower;
 	}
 
+	public void setWaiterExecutor(Executor waiterExecutor) {
+		Assert.notNull(waiterExecutor, "Waiter executor can't be null!");
+		this.waiterExecutor = waiterExecutor;
+	}
+
 	public void setRejectedPutBufferHandler(RejectedPutBufferHandler rejectedPutBufferHandler) {
 		Assert.notNull(rejectedPutBufferHandler, "RejectedPutBufferHandler can't be null!");
 		this.rejectedPutBufferHandler = rejectedPutBufferHandler;
@@ -2,12 +2,20 @@ package com.github.edgewalk.uid.generator.impl;
 
 import com.github.edgewalk.uid.Properties.UidProperties;
 import com.github.edgewalk.uid.exception.UidGenerateException;
+import com.github.edgewalk.uid.generator.BackoffStrategy;
 import com.github.edgewalk.uid.generator.UidGenerator;
+import com.github.edgewalk.uid.generator.clock.ClockBackwardsHandler;
+import com.github.edgewalk.uid.generator.clock.ClockBackwardsPolicy;
+import com.github.edgewalk.uid.time.TimeSource;
 import com.github.edgewalk.uid.utils.BitsAllocator;
 import com.github.edgewalk.uid.utils.DateUtils;
+import com.github.edgewalk.uid.utils.TickUnit;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
 
 import java.util.Date;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 默认id生成器
@@ -30,9 +38,11 @@ import java.util.Date;
  * <p>
  * 加起来刚好64位，为一个Long型(4个字节)
  * SnowFlake的优点是，整体上按照时间自增排序，并且整个分布式系统内不会产生ID碰撞(由机器ID作区分)，并且效率较高，经测试，SnowFlake每秒能够产生100万ID左右
+ * <p>
+ * 时间戳的单位由 {@link TickUnit} 指定,默认1毫秒,下文中的"毫秒"均指一个时间戳单位
  */
 @Slf4j
-public class DefaultUidGenerator implements UidGenerator {
+public class DefaultUidGenerator implements UidGenerator, DisposableBean {
 
 	//bit位分配器
 	protected BitsAllocator bitsAllocator;
@@ -42,29 +52,73 @@ public class DefaultUidGenerator implements UidGenerator {
 	protected int workerIdBits;
 	//12位序列所占的位数
 	protected int sequenceBits;
+	//时间戳的单位
+	protected TickUnit tickUnit;
 	//开始时间 (2015-01-01) ,一般设置成id生成器,开始运行时候,这个参数很重要,如果服务器down机重启,lastTimestamp会变成0
-	//但是只要不调整系统时间,那么时间差值就会不重复,生成的id就不会重复
+	//但是只要不调整系统时间,那么时间差值就会不重复,生成的id就不会重复,单位是 tickUnit
 	protected long twepoch;
 	//机器ID
 	protected long workerId;
+	//时钟源
+	protected final TimeSource timeSource;
 
 
+	//保护序列号和时间戳,不使用 synchronized,等待下一毫秒时不会钉住虚拟线程的载体线程
+	protected final ReentrantLock lock = new ReentrantLock();
 	//保存毫秒内序列
 	protected long sequence = 0L;
 	//上次生成ID的时间截
 	protected long lastTimestamp = -1L;
 
+	//序列号用完时,逻辑时间最多可以领先系统时间的单位数,0表示不借用
+	protected long maxBorrowTicks;
+	//借用预算用完时等待下一毫秒的退避策略
+	protected BackoffStrategy backoff;
+
+	//时钟回退处理策略
+	protected ClockBackwardsHandler clockBackwardsHandler;
+	//备用机器ID,-1表示没有
+	protected long standbyWorkerId;
+	//备用机器ID上一次生成ID的时间截
+	protected long standbyTimestamp = -1L;
+
+	//每个线程一次租用的序列号数量,0表示不租用
+	protected int leaseSize;
+	//线程租用的序列号
+	private final ThreadLocal<SequenceLease> leases = ThreadLocal.withInitial(SequenceLease::new);
+
 
 	public DefaultUidGenerator(UidProperties uidProperties) {
 		this.timestampBits = uidProperties.getTimestampBits();
 		this.workerIdBits = uidProperties.getWorkerIdBits();
 		this.sequenceBits = uidProperties.getSequenceBits();
+		this.tickUnit = uidProperties.getTickUnit();
 		bitsAllocator = new BitsAllocator(timestampBits, workerIdBits, sequenceBits);
 		this.workerId = uidProperties.getWorkId();
 		if (workerId > bitsAllocator.getMaxWorkerId()) {
 			throw new RuntimeException("Worker id " + workerId + " exceeds the max " + bitsAllocator.getMaxWorkerId());
 		}
-		this.twepoch = DateUtils.parseByDayPattern(uidProperties.getEpochStr()).getTime();
+		this.twepoch = tickUnit.toTicks(DateUtils.parseByDayPattern(uidProperties.getEpochStr()).getTime());
+		this.timeSource = uidProperties.getTimeSource().create();
+		if (uidProperties.getMaxBorrowMillis() < 0) {
+			throw new RuntimeException("Max borrow millis " + uidProperties.getMaxBorrowMillis() + " can't be negative");
+		}
+		// 借用预算向下取整,不会领先超过配置的毫秒数
+		this.maxBorrowTicks = tickUnit.toTicks(uidProperties.getMaxBorrowMillis());
+		this.backoff = uidProperties.getBackoff();
+		// 可以容忍的回退向上取整,不足一个单位的回退也可以容忍
+		this.clockBackwardsHandler = uidProperties.getClockBackwardsPolicy().create(tickUnit.toTicksCeil(uidProperties.getMaxBackwardsMillis()));
+		this.standbyWorkerId = uidProperties.getBackupWorkId();
+		if (standbyWorkerId > bitsAllocator.getMaxWorkerId() || standbyWorkerId == workerId) {
+			throw new RuntimeException("Backup worker id " + standbyWorkerId + " must differ from worker id and not exceed the max " + bitsAllocator.getMaxWorkerId());
+		}
+		if (uidProperties.getClockBackwardsPolicy() == ClockBackwardsPolicy.BACKUP_WORKER && standbyWorkerId < 0) {
+			throw new RuntimeException("Backup worker id is required by clock backwards policy BACKUP_WORKER");
+		}
+		this.leaseSize = uidProperties.getLeaseSize();
+		if (leaseSize < 0) {
+			throw new RuntimeException("Lease size " + leaseSize + " can't be negative");
+		}
 	}
 
 	public static void main(String[] args) {
@@ -74,16 +128,26 @@ public class DefaultUidGenerator implements UidGenerator {
 		System.out.println(defaultIdGenerator.parseUid(uid));
 	}
 
+	/**
+	 * 热点路径上不分配对象,失败由单独的方法抛出 {@link UidGenerateException};
+	 * 其他意外的运行时异常同样包装为 {@link UidGenerateException},try/catch 只在抛出异常时才有开销
+	 */
 	@Override
 	public long getUid() throws UidGenerateException {
 		try {
-			return nextId();
-		} catch (Exception e) {
-			log.error("Generate unique id exception. ", e);
-			throw new UidGenerateException(e);
+			return leaseSize > 0 ? nextLeasedId() : nextId();
+		} catch (UidGenerateException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw generateFailed(e);
 		}
 	}
 
+	@Override
+	public void destroy() throws Exception {
+		timeSource.shutdown();
+	}
+
 	@Override
 	public String parseUid(long uid) {
 		long totalBits = BitsAllocator.TOTAL_BITS;
@@ -95,9 +159,9 @@ public class DefaultUidGenerator implements UidGenerator {
 		//
 		long sequence = (uid << (totalBits - sequenceBits)) >>> (totalBits - sequenceBits);
 		long workerId = (uid << (timestampBits + signBits)) >>> (totalBits - workerIdBits);
-		long deltaSeconds = uid >>> (workerIdBits + sequenceBits);
+		long deltaTicks = uid >>> (workerIdBits + sequenceBits);
 
-		Date thatTime = new Date(twepoch + deltaSeconds);
+		Date thatTime = new Date(tickUnit.toMillis(twepoch + deltaTicks));
 		String thatTimeStr = DateUtils.formatByDateTimePattern(thatTime);
 		// format as string
 		return String.format("{\"UID\":\"%d\",\"timestamp\":\"%s\",\"workerId\":\"%d\",\"sequence\":\"%d\"}",
@@ -105,72 +169,249 @@ public class DefaultUidGenerator implements UidGenerator {
 	}
 
 
+	@Override
+	public void fill(long[] dst) throws UidGenerateException {
+		try {
+			int pos = 0;
+			while (pos < dst.length) {
+				long firstUid = nextIdRange(dst.length - pos);
+				int count = rangeSize(firstUid, dst.length - pos);
+				for (int i = 0; i < count; i++) {
+					dst[pos++] = firstUid + i;
+				}
+			}
+		} catch (UidGenerateException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw generateFailed(e);
+		}
+	}
+
 	/**
-	 * 获得下一个ID (该方法是线程安全的)
+	 * 获得下一个ID (该方法是线程安全的,使用 {@link #lock} 而不是 synchronized,可以在虚拟线程中调用)
 	 *
 	 * @return SnowflakeId
 	 */
-	public synchronized long nextId() {
-		long timestamp = getCurrentMilliSecond();
-		// 如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过这个时候应当抛出异常
-		if (timestamp < lastTimestamp) {
-			/*
-			扩展配置,如果系统时间回退在可以忍受的范围内,可以等待,让线程睡眠
-			long offset = lastTimestamp - timestamp;
-			if (offset <= 10) {//如果发生时钟回退在可接受的范围以内(10ms)
-				try {
-					Thread.sleep(offset + 1);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				timestamp = currentMilliSecond();//再次获取时间戳
+	public long nextId() {
+		return nextIdRange(1);
+	}
+
+	/**
+	 * 从当前线程租用的序列号中获取ID
+	 * 只有租用时才会访问共享的生成器状态,租约用完或者毫秒已经改变(未用完的序列号直接丢弃)时重新租用
+	 *
+	 * @return SnowflakeId
+	 */
+	protected long nextLeasedId() {
+		SequenceLease lease = leases.get();
+		if (lease.remaining > 0 && lease.timestamp >= getCurrentTick()) {
+			lease.remaining--;
+			return lease.nextUid++;
+		}
+		long firstUid = nextIdRange(leaseSize);
+		lease.timestamp = (firstUid >>> bitsAllocator.getTimestampShift()) + twepoch;
+		lease.remaining = rangeSize(firstUid, leaseSize) - 1;
+		lease.nextUid = firstUid + 1;
+		return firstUid;
+	}
+
+	/**
+	 * 预留同一毫秒内连续的 size 个序列号 (该方法是线程安全的)
+	 * 当前毫秒剩余的序列号不足 size 个时,只预留到该毫秒的最后一个序列号,
+	 * 同一毫秒内的id是连续的,所以区间内的id = 第一个id + 偏移量,区间长度使用 {@link #rangeSize(long, int)} 计算
+	 *
+	 * @param size 希望预留的数量
+	 * @return 区间内第一个id
+	 */
+	protected long nextIdRange(int size) {
+		lock.lock();
+		try {
+			long timestamp = getCurrentTick();
+			// 借用模式下逻辑时间可能领先系统时间,领先量在借用预算内时继续使用上一次的时间戳
+			if (timestamp < lastTimestamp && lastTimestamp - timestamp <= maxBorrowTicks) {
+				timestamp = lastTimestamp;
 			}
-			if (timestamp < lastTimestamp) {//如果仍然小于
-				throw new RuntimeException(String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+			// 如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过,交给时钟回退处理策略
+			if (timestamp < lastTimestamp) {
+				timestamp = clockBackwardsHandler.handle(this, lastTimestamp, timestamp);
+				// 处理策略可能切换了机器id,重新检查,仍然小于时拒绝生成
+				if (timestamp < lastTimestamp) {
+					throw clockMovedBackwards(lastTimestamp, timestamp);
+				}
 			}
-			*/
-			log.error(String.format("clock is moving backwards. Rejecting requests until %d.", lastTimestamp));
-			throw new RuntimeException(String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
-		} else if (timestamp == lastTimestamp) {// 如果是同一时间生成的，则进行毫秒内序列
-			sequence = (sequence + 1) & bitsAllocator.getMaxSequence();//相等为0
-			// 毫秒内序列溢出
-			if (sequence == 0L) {
-				// 阻塞到下一个毫秒,获得新的时间戳
-				timestamp = tilNextMillis(lastTimestamp);
+
+			long firstSequence;
+			if (timestamp == lastTimestamp) {// 如果是同一时间生成的，则进行毫秒内序列
+				firstSequence = sequence + 1;
+				// 毫秒内序列溢出
+				if (firstSequence > bitsAllocator.getMaxSequence()) {
+					// 阻塞到下一个毫秒,获得新的时间戳
+					timestamp = tilNextTick(lastTimestamp);
+					firstSequence = 0L;
+				}
+			} else {// 时间戳改变(当前时间大于上一次id生成时间)，毫秒内序列重置
+				//TODO 如果为了id能均匀分配(根据id尾数hash分库存储),此处需要设置毫秒内初始序列号为0-9的随机数
+				//sequence=new Random().nextInt(10);
+				firstSequence = 0L;
 			}
-		} else {// 时间戳改变(当前时间大于上一次id生成时间)，毫秒内序列重置
-			//TODO 如果为了id能均匀分配(根据id尾数hash分库存储),此处需要设置毫秒内初始序列号为0-9的随机数
-			//sequence=new Random().nextInt(10);
-			sequence = 0L;
+
+			// 区间内最后一个序列号
+			sequence = Math.min(firstSequence + size - 1, bitsAllocator.getMaxSequence());
+			// 上次生成ID的时间截
+			lastTimestamp = timestamp;
+			// 移位并通过或运算拼到一起组成64位的ID
+			return bitsAllocator.allocate(timestamp - twepoch, workerId, firstSequence);
+		} finally {
+			lock.unlock();
 		}
+	}
 
-		// 上次生成ID的时间截
-		lastTimestamp = timestamp;
-		// 移位并通过或运算拼到一起组成64位的ID
-		return bitsAllocator.allocate(timestamp - twepoch, workerId, sequence);
+	/**
+	 * 计算 {@link #nextIdRange(int)} 实际预留的数量
+	 *
+	 * @param firstUid 区间内第一个id
+	 * @param size     希望预留的数量
+	 * @return 实际预留的数量
+	 */
+	protected int rangeSize(long firstUid, int size) {
+		long maxSequence = bitsAllocator.getMaxSequence();
+		return (int) Math.min(size, maxSequence - (firstUid & maxSequence) + 1);
 	}
 
 	/**
-	 * 阻塞到下一个毫秒，直到获得新的时间戳
+	 * 获得大于上一次时间戳的新时间戳
+	 * 下一毫秒领先系统时间不超过借用预算 {@link #maxBorrowTicks} 时直接借用,不需要等待;
+	 * 否则按照退避策略 {@link #backoff} 等待,直到借用下一毫秒不再超出预算(不借用时即等到下一毫秒)
 	 *
 	 * @param lastTimestamp 上次生成ID的时间截
-	 * @return 当前时间戳
+	 * @return 新的时间戳
 	 */
-	protected long tilNextMillis(long lastTimestamp) {
-		long timestamp = getCurrentMilliSecond();
-		//如果当前时间小于上一次生成id的时间,那么就自旋到下一毫秒
-		while (timestamp <= lastTimestamp) {
-			timestamp = System.currentTimeMillis();
+	protected long tilNextTick(long lastTimestamp) {
+		long nextTimestamp = lastTimestamp + 1;
+		long timestamp = getCurrentTick();
+		while (nextTimestamp - timestamp > maxBorrowTicks) {
+			// 系统时钟落后于上次的时间戳并且超出了借用预算,说明等待期间时钟发生了回退
+			if (lastTimestamp - timestamp > maxBorrowTicks) {
+				long handled = clockBackwardsHandler.handle(this, nextTimestamp, timestamp);
+				// 处理策略接受了下一毫秒,或者切换了机器id
+				if (handled >= nextTimestamp || lastIssuedTimestamp() < lastTimestamp) {
+					return handled;
+				}
+				throw clockMovedBackwards(lastTimestamp, handled);
+			}
+			backoff.idle();
+			timestamp = tickUnit.toTicks(timeSource.currentTimeMillis());
 		}
-		return timestamp;
+		return Math.max(timestamp, nextTimestamp);
 	}
 
-	private long getCurrentMilliSecond() {
-		long currentSecond = System.currentTimeMillis();
-		if (currentSecond - twepoch > bitsAllocator.getMaxTimestamp()) {
+	/**
+	 * 切换到备用机器id,从 timestamp 开始使用备用机器id生成,原来的机器id成为新的备用机器id
+	 * 只有备用机器id上一次生成ID的时间截小于 timestamp 时才能切换
+	 *
+	 * @param timestamp 当前时间戳
+	 * @return 是否切换成功
+	 */
+	public boolean switchWorker(long timestamp) {
+		lock.lock();
+		try {
+			if (standbyWorkerId < 0 || standbyTimestamp >= timestamp) {
+				return false;
+			}
+			long activeWorkerId = workerId;
+			workerId = standbyWorkerId;
+			standbyWorkerId = activeWorkerId;
+			standbyTimestamp = lastTimestamp;
+			// 备用机器id从 timestamp 开始重新计算序列号
+			lastTimestamp = timestamp - 1;
+			log.warn("Clock moved backwards, switched worker id from {} to {} at {}.", standbyWorkerId, workerId, timestamp);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 生成id时发生了意外的异常 (冷路径)
+	 */
+	protected UidGenerateException generateFailed(RuntimeException e) {
+		log.error("Generate unique id exception. ", e);
+		return new UidGenerateException(e);
+	}
+
+	/**
+	 * 时钟回退,拒绝生成id
+	 */
+	protected UidGenerateException clockMovedBackwards(long lastTimestamp, long timestamp) {
+		log.error("clock is moving backwards. Rejecting requests until {}.", lastTimestamp);
+		return new UidGenerateException(String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", tickUnit.toMillis(lastTimestamp - timestamp)));
+	}
+
+	/**
+	 * 逻辑时间领先系统时间的毫秒数
+	 *
+	 * @return 借用的毫秒数,没有借用时为0
+	 */
+	public long getBorrowedMillis() {
+		return tickUnit.toMillis(Math.max(0L, lastIssuedTimestamp() - tickUnit.toTicks(timeSource.currentTimeMillis())));
+	}
+
+	/**
+	 * 上一次生成ID使用的时间戳
+	 * lastTimestamp 只在 {@link #lock} 内读写,其他线程(例如监控)也要在锁内读取;锁可重入,生成id时调用不受影响
+	 */
+	protected long lastIssuedTimestamp() {
+		lock.lock();
+		try {
+			return lastTimestamp;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public TimeSource getTimeSource() {
+		return timeSource;
+	}
+
+	public TickUnit getTickUnit() {
+		return tickUnit;
+	}
+
+	public void setClockBackwardsHandler(ClockBackwardsHandler clockBackwardsHandler) {
+		Assert.notNull(clockBackwardsHandler, "ClockBackwardsHandler can't be null!");
+		this.clockBackwardsHandler = clockBackwardsHandler;
+	}
+
+	/**
+	 * 线程租用的序列号,只被所属线程访问
+	 */
+	private static final class SequenceLease {
+		//租约所属的毫秒
+		private long timestamp;
+		//下一个可用的id
+		private long nextUid;
+		//剩余可用的数量
+		private int remaining;
+	}
+
+	/**
+	 * 当前时间戳,单位是 {@link #tickUnit}
+	 */
+	public long getCurrentTick() {
+		long currentTick = tickUnit.toTicks(timeSource.currentTimeMillis());
+		if (currentTick - twepoch > bitsAllocator.getMaxTimestamp()) {
 			//时间戳用尽了
-			throw new RuntimeException("timeBits is exhausted. Refusing UID generate. Now: " + DateUtils.formatByDateTimePattern(new Date(currentSecond)));
+			throw timestampExhausted(currentTick);
 		}
-		return currentSecond;
+		return currentTick;
+	}
+
+	/**
+	 * 时间戳用尽,拒绝生成id
+	 */
+	private UidGenerateException timestampExhausted(long currentTick) {
+		String message = "timeBits is exhausted. Refusing UID generate. Now: " + DateUtils.formatByDateTimePattern(new Date(tickUnit.toMillis(currentTick)));
+		log.error(message);
+		return new UidGenerateException(message);
 	}
 }
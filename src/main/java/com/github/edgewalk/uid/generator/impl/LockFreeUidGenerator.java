@@ -0,0 +1,200 @@
+package com.github.edgewalk.uid.generator.impl;
+
+import com.github.edgewalk.uid.Properties.UidProperties;
+import com.github.edgewalk.uid.utils.PaddedAtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁id生成器
+ * 与 {@link DefaultUidGenerator} 的位分配相同,但不再使用 synchronized 串行化 nextId()
+ * 上次生成的 (时间戳, 序列号) 连同机器id一起打包保存在一个 {@link PaddedAtomicLong} 中,
+ * 打包的值就是上一次生成的uid本身(由 {@link com.github.edgewalk.uid.utils.BitsAllocator#allocate} 生成),
+ * 每次获取id时通过CAS把状态推进到本次预留的最后一个uid,CAS成功的线程即拥有该区间内的id
+ */
+@Slf4j
+public class LockFreeUidGenerator extends DefaultUidGenerator {
+
+	//当前毫秒的序列号已用完 (uid的符号位总是0,不会与正常的id冲突)
+	protected static final long EXHAUSTED = -1L;
+	//状态已经改变,需要重新读取
+	private static final long RETRY = Long.MIN_VALUE;
+
+	//上次生成的uid: timestamp | workerId | sequence
+	private final PaddedAtomicLong state;
+
+	public LockFreeUidGenerator(UidProperties uidProperties) {
+		super(uidProperties);
+		this.state = new PaddedAtomicLong(bitsAllocator.allocate(0L, workerId, 0L));
+	}
+
+	/**
+	 * 预留同一毫秒内连续的 size 个序列号 (无锁,线程安全)
+	 * 一次CAS把状态推进到区间内的最后一个id
+	 *
+	 * @param size 希望预留的数量
+	 * @return 区间内第一个id
+	 */
+	@Override
+	protected long nextIdRange(int size) {
+		return nextIdRange(state, bitsAllocator.getMaxSequence(), size);
+	}
+
+	/**
+	 * 时钟回退时调用处理策略 (冷路径,不放在CAS循环中)
+	 *
+	 * @return 继续使用的时间戳,状态已经被改变时返回 {@link #RETRY}
+	 */
+	private long onClockBackwards(AtomicLong state, long current, long lastTimestamp, long timestamp) {
+		timestamp = clockBackwardsHandler.handle(this, lastTimestamp, timestamp);
+		// 处理策略切换了机器id或者其他线程推进了状态,重新读取
+		if (state.get() != current) {
+			return RETRY;
+		}
+		if (timestamp < lastTimestamp) {
+			throw clockMovedBackwards(lastTimestamp, timestamp);
+		}
+		return timestamp;
+	}
+
+	@Override
+	protected long lastIssuedTimestamp() {
+		return lastIssuedTimestamp(state);
+	}
+
+	/**
+	 * 所有的打包状态
+	 */
+	protected AtomicLong[] packedStates() {
+		return new AtomicLong[]{state};
+	}
+
+	/**
+	 * 把所有打包状态中的机器id替换为备用机器id,状态中的时间戳设置为 timestamp - 1
+	 * 替换后其他线程基于旧状态的CAS都会失败,不会再使用原来的机器id生成
+	 */
+	@Override
+	public boolean switchWorker(long timestamp) {
+		lock.lock();
+		try {
+			if (standbyWorkerId < 0 || standbyTimestamp >= timestamp) {
+				return false;
+			}
+			long activeTimestamp = -1L;
+			for (AtomicLong packed : packedStates()) {
+				long current;
+				do {
+					current = packed.get();
+				} while (!packed.compareAndSet(current, bitsAllocator.allocate(timestamp - 1 - twepoch, standbyWorkerId, current & bitsAllocator.getMaxSequence())));
+				activeTimestamp = Math.max(activeTimestamp, (current >>> bitsAllocator.getTimestampShift()) + twepoch);
+			}
+			long activeWorkerId = workerId;
+			workerId = standbyWorkerId;
+			standbyWorkerId = activeWorkerId;
+			standbyTimestamp = activeTimestamp;
+			log.warn("Clock moved backwards, switched worker id from {} to {} at {}.", standbyWorkerId, workerId, timestamp);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 打包状态中上一次生成ID使用的时间戳
+	 */
+	protected long lastIssuedTimestamp(AtomicLong state) {
+		return (state.get() >>> bitsAllocator.getTimestampShift()) + twepoch;
+	}
+
+	/**
+	 * 在指定的打包状态上预留序列号,当前毫秒的序列号用完时等待到下一毫秒
+	 * 序列号中 maxSequence 以外的高位是固定的(例如分段生成器的段号),只有 maxSequence 覆盖的低位在毫秒内递增
+	 * 与 {@link DefaultUidGenerator#nextIdRange(int)} 相同,直接使用 {@link #tilNextTick(long)} 返回的时间戳
+	 * (可能是借用的下一毫秒,或者时钟回退处理策略接受的时间戳),而不是重新读取时钟
+	 *
+	 * @param state       打包状态,即上次生成的uid
+	 * @param maxSequence 毫秒内可以递增的序列号掩码
+	 * @param size        希望预留的数量
+	 * @return 区间内第一个id
+	 */
+	protected long nextIdRange(AtomicLong state, long maxSequence, int size) {
+		for (; ; ) {
+			long first = tryNextIdRange(state, maxSequence, size);
+			if (first != EXHAUSTED) {
+				return first;
+			}
+			long current = state.get();
+			long timestamp = tilNextTick((current >>> bitsAllocator.getTimestampShift()) + twepoch);
+			first = advance(state, current, timestamp, maxSequence, size);
+			if (first != RETRY) {
+				return first;
+			}
+		}
+	}
+
+	/**
+	 * 把打包状态从 current 推进到 timestamp 并预留序列号
+	 *
+	 * @param timestamp 大于 current 中的时间戳
+	 * @return 区间内第一个id, 状态已经被其他线程推进或者切换了机器id时返回 {@link #RETRY}
+	 */
+	private long advance(AtomicLong state, long current, long timestamp, long maxSequence, int size) {
+		long sequenceBase = current & bitsAllocator.getMaxSequence() & ~maxSequence;
+		long currentWorkerId = (current >>> bitsAllocator.getWorkerIdShift()) & bitsAllocator.getMaxWorkerId();
+		long first = bitsAllocator.allocate(timestamp - twepoch, currentWorkerId, sequenceBase);
+		long count = Math.min(size, maxSequence - (first & maxSequence) + 1);
+		return state.compareAndSet(current, first + count - 1) ? first : RETRY;
+	}
+
+	/**
+	 * 在指定的打包状态上预留序列号,不等待
+	 *
+	 * @param state       打包状态,即上次生成的uid
+	 * @param maxSequence 毫秒内可以递增的序列号掩码
+	 * @param size        希望预留的数量
+	 * @return 区间内第一个id, 当前毫秒的序列号已用完并且不能借用下一毫秒时返回 {@link #EXHAUSTED}
+	 */
+	protected long tryNextIdRange(AtomicLong state, long maxSequence, int size) {
+		final int timestampShift = bitsAllocator.getTimestampShift();
+		final long sequenceBase = state.get() & bitsAllocator.getMaxSequence() & ~maxSequence;
+		for (; ; ) {
+			long current = state.get();
+			long lastTimestamp = (current >>> timestampShift) + twepoch;
+			long timestamp = getCurrentTick();
+			// 逻辑时间领先系统时间,领先量在借用预算内时继续使用上一次的时间戳
+			if (timestamp < lastTimestamp && lastTimestamp - timestamp <= maxBorrowTicks) {
+				timestamp = lastTimestamp;
+			}
+
+			// 时钟回退,交给时钟回退处理策略
+			if (timestamp < lastTimestamp) {
+				timestamp = onClockBackwards(state, current, lastTimestamp, timestamp);
+				if (timestamp == RETRY) {
+					continue;
+				}
+			}
+
+			long first;
+			long currentWorkerId = (current >>> bitsAllocator.getWorkerIdShift()) & bitsAllocator.getMaxWorkerId();
+			if (timestamp == lastTimestamp) {
+				if ((current & maxSequence) != maxSequence) {
+					first = current + 1;
+				} else if (lastTimestamp + 1 - getCurrentTick() <= maxBorrowTicks) {
+					// 毫秒内序列溢出,借用下一毫秒
+					first = bitsAllocator.allocate(lastTimestamp + 1 - twepoch, currentWorkerId, sequenceBase);
+				} else {
+					// 毫秒内序列溢出,并且借用预算已经用完
+					return EXHAUSTED;
+				}
+			} else {
+				first = bitsAllocator.allocate(timestamp - twepoch, currentWorkerId, sequenceBase);
+			}
+
+			long count = Math.min(size, maxSequence - (first & maxSequence) + 1);
+			if (state.compareAndSet(current, first + count - 1)) {
+				return first;
+			}
+		}
+	}
+}
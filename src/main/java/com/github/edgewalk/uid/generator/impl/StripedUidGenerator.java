@@ -0,0 +1,103 @@
+package com.github.edgewalk.uid.generator.impl;
+
+import com.github.edgewalk.uid.Properties.UidProperties;
+import com.github.edgewalk.uid.utils.PaddedAtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分段id生成器
+ * 把序列号拆分为 段号 + 段内序列号,每个段有自己独立的打包状态(各自一个缓存行),
+ * 线程根据线程id的hash路由到固定的段,不同段上的线程之间不会竞争同一个CAS,
+ * 某个段当前毫秒的序列号用完时,借用其他段剩余的序列号
+ * <pre>{@code
+ * +------+----------------------+----------------+--------+-----------------+
+ * | sign |     timestramp       | worker node id | stripe | stripe sequence |
+ * +------+----------------------+----------------+--------+-----------------+
+ *   1bit          41bits              10bits          sequenceBits(12bits)
+ * }</pre>
+ * 段号位于序列号的高位,所以生成的id与 {@link DefaultUidGenerator} 的位分配完全相同,可以直接使用 parseUid 解析;
+ * 代价是每个段每毫秒只能生成 2^(sequenceBits - stripeBits) 个id,同一毫秒内不同段的id不再保证递增;
+ * 序列号太少(不超过6位)又没有指定段号位数时只有一个段
+ */
+@Slf4j
+public class StripedUidGenerator extends LockFreeUidGenerator {
+
+	//段号所占的位数,0表示只有一个段
+	private final int stripeBits;
+	//段内序列号掩码
+	private final long stripeMaxSequence;
+	//每个段的打包状态
+	private final PaddedAtomicLong[] stripes;
+
+	public StripedUidGenerator(UidProperties uidProperties) {
+		super(uidProperties);
+		this.stripeBits = uidProperties.getStripeBits() > 0 ? uidProperties.getStripeBits() : defaultStripeBits();
+		Assert.isTrue(stripeBits == 0 || stripeBits < sequenceBits,
+				"Stripe bits " + stripeBits + " must be less than sequence bits " + sequenceBits);
+		int stripeSequenceBits = sequenceBits - stripeBits;
+		this.stripeMaxSequence = (1L << stripeSequenceBits) - 1;
+		this.stripes = new PaddedAtomicLong[1 << stripeBits];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new PaddedAtomicLong(bitsAllocator.allocate(0L, workerId, (long) i << stripeSequenceBits));
+		}
+		log.info("Initialized StripedUidGenerator stripes:{}, sequences per stripe:{}", stripes.length, stripeMaxSequence + 1);
+	}
+
+	/**
+	 * 优先使用线程所在的段,该段当前毫秒的序列号用完时依次尝试其他段,所有段都用完才等待下一毫秒
+	 */
+	@Override
+	protected long nextIdRange(int size) {
+		int home = stripeIndex();
+		for (int i = 0; i < stripes.length; i++) {
+			long first = tryNextIdRange(stripes[(home + i) & (stripes.length - 1)], stripeMaxSequence, size);
+			if (first != EXHAUSTED) {
+				return first;
+			}
+		}
+		return nextIdRange(stripes[home], stripeMaxSequence, size);
+	}
+
+	@Override
+	protected int rangeSize(long firstUid, int size) {
+		return (int) Math.min(size, stripeMaxSequence - (firstUid & stripeMaxSequence) + 1);
+	}
+
+	@Override
+	protected AtomicLong[] packedStates() {
+		return stripes;
+	}
+
+	@Override
+	protected long lastIssuedTimestamp() {
+		long timestamp = -1L;
+		for (PaddedAtomicLong stripe : stripes) {
+			timestamp = Math.max(timestamp, lastIssuedTimestamp(stripe));
+		}
+		return timestamp;
+	}
+
+	/**
+	 * 根据线程id的hash选择段,同一个线程总是落在同一个段
+	 */
+	private int stripeIndex() {
+		// 移位数按64取模,只有一个段时不能右移64位
+		if (stripeBits == 0) {
+			return 0;
+		}
+		long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> (Long.SIZE - stripeBits));
+	}
+
+	/**
+	 * 默认每个cpu核心一个段,最少保留64个段内序列号,序列号不足时只有一个段
+	 */
+	private int defaultStripeBits() {
+		int cores = Runtime.getRuntime().availableProcessors();
+		int bits = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(cores - 1, 1));
+		return Math.max(0, Math.min(bits, sequenceBits - 6));
+	}
+}
@@ -0,0 +1,42 @@
+package com.github.edgewalk.uid.time;
+
+import com.github.edgewalk.uid.utils.NamingThreadFactory;
+import com.github.edgewalk.uid.utils.PaddedAtomicLong;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存时钟
+ * 由一个后台线程每毫秒读取一次系统时钟,保存在 {@link PaddedAtomicLong} 中,
+ * 获取时间只需要一次volatile读,代价是最多落后系统时钟一个刻度
+ */
+public class CachedTimeSource implements TimeSource {
+
+	//后台线程名
+	private static final String TICKER_NAME = "Uid-Clock-Ticker";
+
+	//缓存的当前时间,单独占用一个缓存行
+	private final PaddedAtomicLong now;
+
+	private final ScheduledExecutorService ticker;
+
+	public CachedTimeSource() {
+		this.now = new PaddedAtomicLong(System.currentTimeMillis());
+		this.ticker = Executors.newSingleThreadScheduledExecutor(new NamingThreadFactory(TICKER_NAME, true));
+		this.ticker.scheduleAtFixedRate(() -> now.set(System.currentTimeMillis()), 1, 1, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		return now.get();
+	}
+
+	@Override
+	public void shutdown() {
+		if (!ticker.isShutdown()) {
+			ticker.shutdownNow();
+		}
+	}
+}
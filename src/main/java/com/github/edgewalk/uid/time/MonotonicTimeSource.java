@@ -0,0 +1,27 @@
+package com.github.edgewalk.uid.time;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单调时钟
+ * 创建时以系统时钟为锚点,之后的时间由 {@link System#nanoTime()} 推算,
+ * 不受NTP校时、手动修改系统时间的影响,永远不会回退
+ * 注意: 运行时间很长时,与系统时钟之间可能存在少量漂移
+ */
+public class MonotonicTimeSource implements TimeSource {
+
+	//锚点: 系统时钟
+	private final long anchorMillis;
+	//锚点: 单调时钟
+	private final long anchorNanos;
+
+	public MonotonicTimeSource() {
+		this.anchorMillis = System.currentTimeMillis();
+		this.anchorNanos = System.nanoTime();
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		return anchorMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - anchorNanos);
+	}
+}
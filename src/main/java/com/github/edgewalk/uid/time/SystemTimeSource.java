@@ -0,0 +1,12 @@
+package com.github.edgewalk.uid.time;
+
+/**
+ * 系统时钟,每次都调用 {@link System#currentTimeMillis()}
+ */
+public class SystemTimeSource implements TimeSource {
+
+	@Override
+	public long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,21 @@
+package com.github.edgewalk.uid.time;
+
+/**
+ * 时钟源
+ * id生成器通过时钟源获取当前时间,可以替换为缓存时钟或单调时钟,减少热点路径上读取系统时钟的开销
+ */
+public interface TimeSource {
+
+	/**
+	 * 当前时间
+	 *
+	 * @return 毫秒时间戳
+	 */
+	long currentTimeMillis();
+
+	/**
+	 * 释放时钟源持有的资源(例如后台线程)
+	 */
+	default void shutdown() {
+	}
+}
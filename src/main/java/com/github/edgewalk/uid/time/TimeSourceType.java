@@ -0,0 +1,44 @@
+package com.github.edgewalk.uid.time;
+
+/**
+ * 时钟源类型
+ */
+public enum TimeSourceType {
+
+	/**
+	 * 系统时钟
+	 */
+	SYSTEM {
+		@Override
+		public TimeSource create() {
+			return new SystemTimeSource();
+		}
+	},
+
+	/**
+	 * 后台线程刷新的缓存时钟
+	 */
+	CACHED {
+		@Override
+		public TimeSource create() {
+			return new CachedTimeSource();
+		}
+	},
+
+	/**
+	 * 基于nanoTime的单调时钟
+	 */
+	MONOTONIC {
+		@Override
+		public TimeSource create() {
+			return new MonotonicTimeSource();
+		}
+	};
+
+	/**
+	 * 创建对应类型的时钟源
+	 *
+	 * @return 时钟源
+	 */
+	public abstract TimeSource create();
+}
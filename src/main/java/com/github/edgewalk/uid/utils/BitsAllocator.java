@@ -74,13 +74,13 @@ public class BitsAllocator {
 	/**
 	 * 移位并通过或运算拼到一起组成64位的ID
 	 *
-	 * @param deltaSeconds 当前时间戳-起始时间戳
+	 * @param deltaTicks   当前时间戳-起始时间戳,单位是生成器的 {@link TickUnit}
 	 * @param workerId     机器id
 	 * @param sequence     序列号
 	 * @return
 	 */
-	public long allocate(long deltaSeconds, long workerId, long sequence) {
-		return (deltaSeconds << timestampShift) | (workerId << workerIdShift) | sequence;
+	public long allocate(long deltaTicks, long workerId, long sequence) {
+		return (deltaTicks << timestampShift) | (workerId << workerIdShift) | sequence;
 	}
 
 	@Override
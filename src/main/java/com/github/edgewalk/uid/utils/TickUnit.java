@@ -0,0 +1,61 @@
+package com.github.edgewalk.uid.utils;
+
+/**
+ * uid中时间戳的单位
+ * 单位越大,时间戳的位数可以使用的年限越长,每个单位内可以生成的id(2^sequenceBits)分摊到的时间也越长;
+ * 单位越小,突发时每秒可以生成的id越多
+ */
+public enum TickUnit {
+
+	/**
+	 * 1毫秒
+	 */
+	MILLISECOND(1L),
+
+	/**
+	 * 10毫秒
+	 */
+	TEN_MILLISECONDS(10L),
+
+	/**
+	 * 100毫秒
+	 */
+	HUNDRED_MILLISECONDS(100L),
+
+	/**
+	 * 1秒
+	 */
+	SECOND(1000L);
+
+	//每个单位的毫秒数
+	private final long millis;
+
+	TickUnit(long millis) {
+		this.millis = millis;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * 毫秒时间转换为单位数,向下取整
+	 */
+	public long toTicks(long millis) {
+		return Math.floorDiv(millis, this.millis);
+	}
+
+	/**
+	 * 毫秒时间转换为单位数,向上取整
+	 */
+	public long toTicksCeil(long millis) {
+		return -Math.floorDiv(-millis, this.millis);
+	}
+
+	/**
+	 * 单位数转换为毫秒时间
+	 */
+	public long toMillis(long ticks) {
+		return ticks * millis;
+	}
+}
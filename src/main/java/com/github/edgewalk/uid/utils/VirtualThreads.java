@@ -0,0 +1,19 @@
+package com.github.edgewalk.uid.utils;
+
+/**
+ * 虚拟线程工具
+ * java8 基线版本中不存在虚拟线程,始终返回false;
+ * 使用 -Pjava21 构建时 META-INF/versions/21 下的同名类会替换本类(multi-release jar)
+ */
+public final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * 是否是虚拟线程
+	 */
+	public static boolean isVirtual(Thread thread) {
+		return false;
+	}
+}
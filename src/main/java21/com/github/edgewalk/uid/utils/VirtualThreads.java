@@ -0,0 +1,18 @@
+package com.github.edgewalk.uid.utils;
+
+/**
+ * 虚拟线程工具
+ * java21 版本,打包在 multi-release jar 的 META-INF/versions/21 下
+ */
+public final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * 是否是虚拟线程
+	 */
+	public static boolean isVirtual(Thread thread) {
+		return thread.isVirtual();
+	}
+}
@@ -0,0 +1,49 @@
+package com.github.edgewalk.uid.Buffer;
+
+import com.github.edgewalk.uid.time.SystemTimeSource;
+import com.github.edgewalk.uid.utils.TickUnit;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BufferPaddingExecutor 的填充测试
+ */
+public class BufferPaddingExecutorTest {
+
+	//每个单位的uid数量,不能整除buffer大小,最后一个单位只能放下一部分
+	private static final int UIDS_PER_TICK = 3;
+
+	/**
+	 * 填充到buffer放满是每一轮正常的结束,不执行拒绝策略
+	 */
+	@Test
+	public void fillingBufferIsNotRejected() {
+		for (int parallelism = 1; parallelism <= 3; parallelism++) {
+			RingBuffer ringBuffer = new RingBuffer(8);
+			AtomicInteger rejections = new AtomicInteger();
+			ringBuffer.setRejectedPutHandler((buffer, uid) -> rejections.incrementAndGet());
+			BufferPaddingExecutor executor = new BufferPaddingExecutor(ringBuffer, BufferPaddingExecutorTest::provide,
+					UIDS_PER_TICK, TickUnit.MILLISECOND, new SystemTimeSource(), false, new PaddingWorker(parallelism));
+			try {
+				assertTrue(executor.paddingBuffer());
+				assertTrue("Buffer not full: " + ringBuffer, ringBuffer.getTail() - ringBuffer.getCursor() == ringBuffer.getBufferSize());
+				assertTrue(rejections.get() + " rejections with parallelism " + parallelism, rejections.get() == 0);
+				// 直接添加到已满的buffer仍然执行拒绝策略
+				assertTrue(!ringBuffer.put(0L));
+				assertTrue(rejections.get() == 1);
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	private static int provide(long momentInTick, long[] uids) {
+		for (int i = 0; i < UIDS_PER_TICK; i++) {
+			uids[i] = momentInTick * UIDS_PER_TICK + i;
+		}
+		return UIDS_PER_TICK;
+	}
+}
@@ -0,0 +1,82 @@
+package com.github.edgewalk.uid.generator;
+
+import com.github.edgewalk.uid.Buffer.WaitStrategy;
+import com.github.edgewalk.uid.Properties.UidProperties;
+import com.github.edgewalk.uid.generator.impl.CachedUidGenerator;
+import com.github.edgewalk.uid.generator.impl.DefaultUidGenerator;
+import com.github.edgewalk.uid.generator.impl.LockFreeUidGenerator;
+import com.github.edgewalk.uid.generator.impl.StripedUidGenerator;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * getUid() 热点路径的内存分配测试
+ * 预热之后通过 {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} 统计调用线程分配的字节数,
+ * 平均每个id分配的字节数应该接近0
+ */
+public class UidAllocationTest {
+
+	//预热次数,保证热点路径已经被JIT编译
+	private static final int WARMUP = 200_000;
+	//统计的调用次数
+	private static final int ITERATIONS = 1_000_000;
+	//允许的平均分配字节数,只容纳统计本身和偶发的冷路径(例如填充日志)
+	private static final double MAX_BYTES_PER_UID = 0.1;
+
+	private com.sun.management.ThreadMXBean threadMXBean;
+
+	@Before
+	public void setUp() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threadMXBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@Test
+	public void defaultGeneratorDoesNotAllocate() throws Exception {
+		assertNoAllocation(new DefaultUidGenerator(new UidProperties()));
+	}
+
+	@Test
+	public void lockFreeGeneratorDoesNotAllocate() throws Exception {
+		assertNoAllocation(new LockFreeUidGenerator(new UidProperties()));
+	}
+
+	@Test
+	public void stripedGeneratorDoesNotAllocate() throws Exception {
+		assertNoAllocation(new StripedUidGenerator(new UidProperties()));
+	}
+
+	@Test
+	public void cachedGeneratorDoesNotAllocate() throws Exception {
+		UidProperties uidProperties = new UidProperties();
+		// buffer为空时等待填充,而不是拒绝
+		uidProperties.setTakeWaitStrategy(WaitStrategy.BLOCK);
+		assertNoAllocation(new CachedUidGenerator(uidProperties));
+	}
+
+	private void assertNoAllocation(DefaultUidGenerator generator) throws Exception {
+		try {
+			for (int i = 0; i < WARMUP; i++) {
+				generator.getUid();
+			}
+			long threadId = Thread.currentThread().getId();
+			long before = threadMXBean.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < ITERATIONS; i++) {
+				generator.getUid();
+			}
+			long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+			assertTrue(generator.getClass().getSimpleName() + " allocated " + allocated + " bytes for " + ITERATIONS + " uids",
+					allocated <= ITERATIONS * MAX_BYTES_PER_UID);
+		} finally {
+			generator.destroy();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.github.edgewalk.uid.generator;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * UidPublisher 的信号测试
+ */
+public class UidPublisherTest {
+
+	@Test
+	public void invalidRequestEndsWithOnError() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		new UidPublisher(new FixedUidGenerator(new CompletableFuture<>())).subscribe(subscriber);
+		subscriber.subscription.request(0);
+		assertTrue(subscriber.signals.toString(), subscriber.signals.size() == 1);
+		assertTrue(subscriber.signals.toString(), subscriber.signals.get(0) instanceof IllegalArgumentException);
+	}
+
+	@Test
+	public void cancelledFutureEndsWithOnError() {
+		CompletableFuture<Long> future = new CompletableFuture<>();
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		new UidPublisher(new FixedUidGenerator(future)).subscribe(subscriber);
+		subscriber.subscription.request(1);
+		future.cancel(false);
+		assertTrue(subscriber.signals.toString(), subscriber.signals.size() == 1);
+		assertTrue(subscriber.signals.toString(), subscriber.signals.get(0) instanceof CancellationException);
+		// 发送循环已经退出,之后的请求不会再发送信号
+		subscriber.subscription.request(1);
+		assertTrue(subscriber.signals.toString(), subscriber.signals.size() == 1);
+	}
+
+	/**
+	 * 每次都返回同一个future的生成器
+	 */
+	private static final class FixedUidGenerator implements UidGenerator {
+		private final CompletableFuture<Long> future;
+
+		private FixedUidGenerator(CompletableFuture<Long> future) {
+			this.future = future;
+		}
+
+		@Override
+		public long getUid() {
+			return future.join();
+		}
+
+		@Override
+		public CompletableFuture<Long> getUidAsync() {
+			return future;
+		}
+
+		@Override
+		public String parseUid(long uid) {
+			return String.valueOf(uid);
+		}
+	}
+
+	/**
+	 * 记录 onNext 的id和 onError 的异常
+	 */
+	private static final class RecordingSubscriber implements Subscriber<Long> {
+		private final List<Object> signals = new ArrayList<>();
+		private Subscription subscription;
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(Long uid) {
+			signals.add(uid);
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			signals.add(e);
+		}
+
+		@Override
+		public void onComplete() {
+			signals.add("complete");
+		}
+	}
+}
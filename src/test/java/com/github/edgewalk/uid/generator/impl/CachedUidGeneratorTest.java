@@ -0,0 +1,137 @@
+package com.github.edgewalk.uid.generator.impl;
+
+import com.github.edgewalk.uid.Buffer.WaitStrategy;
+import com.github.edgewalk.uid.Properties.UidProperties;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CachedUidGenerator 的并发测试
+ */
+public class CachedUidGeneratorTest {
+
+	//消费线程数
+	private static final int CONSUMERS = 4;
+	//每个消费线程获取的uid数量
+	private static final int UIDS_PER_CONSUMER = 50_000;
+
+	/**
+	 * 并行度大于2,并且达到领先上限:每轮预留的单位数随剩余的领先预算变化,辅助线程参与的轮次不断变化
+	 */
+	@Test
+	public void parallelPaddingUnderLookAheadKeepsUidsUnique() throws Exception {
+		for (int parallelism = 3; parallelism <= 4; parallelism++) {
+			UidProperties uidProperties = new UidProperties();
+			// 每毫秒64个uid,消费速度超过生成速度,很快达到领先上限
+			uidProperties.setWorkerIdBits((byte) 16);
+			uidProperties.setSequenceBits((byte) 6);
+			uidProperties.setMaxLookAheadSeconds(1);
+			uidProperties.setPaddingParallelism(parallelism);
+			uidProperties.setTakeWaitStrategy(WaitStrategy.BLOCK);
+			uidProperties.setTakeMaxWaitMicros(TimeUnit.SECONDS.toMicros(5));
+			CachedUidGenerator generator = new CachedUidGenerator(uidProperties);
+			try {
+				long[] uids = consume(generator);
+				Arrays.sort(uids);
+				for (int i = 1; i < uids.length; i++) {
+					assertTrue("Duplicate uid " + generator.parseUid(uids[i]), uids[i] != uids[i - 1]);
+				}
+				assertTrue("Look ahead was never throttled", generator.getLookAheadThrottles() > 0);
+			} finally {
+				generator.destroy();
+			}
+		}
+	}
+
+	/**
+	 * buffer为空时返回的future在填充之后结束,依赖它的操作不能在填充线程中执行
+	 */
+	@Test
+	public void asyncWaitersAreNotCompletedOnPaddingThread() throws Exception {
+		UidProperties uidProperties = new UidProperties();
+		// 领先上限很快用完,buffer会被取空
+		uidProperties.setWorkerIdBits((byte) 16);
+		uidProperties.setSequenceBits((byte) 6);
+		uidProperties.setMaxLookAheadSeconds(1);
+		CachedUidGenerator generator = new CachedUidGenerator(uidProperties);
+		try {
+			List<CompletableFuture<String>> threads = new ArrayList<>();
+			while (threads.isEmpty()) {
+				CompletableFuture<Long> future = generator.getUidAsync();
+				if (!future.isDone()) {
+					threads.add(future.thenApply(uid -> Thread.currentThread().getName()));
+				}
+			}
+			String thread = threads.get(0).get(5, TimeUnit.SECONDS);
+			assertTrue("Completed on " + thread, !thread.startsWith("RingBuffer-Padding"));
+		} finally {
+			generator.destroy();
+		}
+	}
+
+	/**
+	 * 达到领先上限时填充线程在每个单位重试,这些填充不能让可调整容量的buffer扩容,更大的buffer也填不满
+	 */
+	@Test
+	public void adaptiveBufferDoesNotGrowWhileThrottled() throws Exception {
+		UidProperties uidProperties = new UidProperties();
+		uidProperties.setWorkerIdBits((byte) 16);
+		uidProperties.setSequenceBits((byte) 6);
+		uidProperties.setMaxLookAheadSeconds(1);
+		uidProperties.setRingBufferAdaptive(true);
+		uidProperties.setTakeWaitStrategy(WaitStrategy.BLOCK);
+		uidProperties.setTakeMaxWaitMicros(TimeUnit.SECONDS.toMicros(5));
+		CachedUidGenerator generator = new CachedUidGenerator(uidProperties);
+		try {
+			// 达到领先上限之前的填充是真实的扩容压力
+			while (generator.getLookAheadThrottles() == 0) {
+				generator.getUid();
+			}
+			long growths = generator.getRingBufferGrowths();
+			// 容量每秒检查一次,继续消费3秒
+			long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+			while (System.nanoTime() < end) {
+				generator.getUid();
+			}
+			assertTrue("Grew " + (generator.getRingBufferGrowths() - growths) + " times while throttled",
+					generator.getRingBufferGrowths() == growths);
+		} finally {
+			generator.destroy();
+		}
+	}
+
+	/**
+	 * 多个线程同时获取,返回所有的uid
+	 */
+	private static long[] consume(CachedUidGenerator generator) throws Exception {
+		ExecutorService consumers = Executors.newFixedThreadPool(CONSUMERS);
+		try {
+			Future<?>[] futures = new Future<?>[CONSUMERS];
+			long[] uids = new long[CONSUMERS * UIDS_PER_CONSUMER];
+			for (int i = 0; i < CONSUMERS; i++) {
+				int from = i * UIDS_PER_CONSUMER;
+				futures[i] = consumers.submit(() -> {
+					for (int j = from; j < from + UIDS_PER_CONSUMER; j++) {
+						uids[j] = generator.getUid();
+					}
+				});
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			return uids;
+		} finally {
+			consumers.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.github.edgewalk.uid.generator.impl;
+
+import com.github.edgewalk.uid.Properties.UidProperties;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StripedUidGenerator 的分段测试
+ */
+public class StripedUidGeneratorTest {
+
+	//消费线程数
+	private static final int CONSUMERS = 4;
+	//每个消费线程获取的uid数量
+	private static final int UIDS_PER_CONSUMER = 10_000;
+
+	/**
+	 * 序列号不超过6位又没有指定段号位数时只有一个段,所有线程共用同一个段
+	 */
+	@Test
+	public void shortSequenceUsesSingleStripe() throws Exception {
+		for (byte sequenceBits = 4; sequenceBits <= 6; sequenceBits++) {
+			UidProperties uidProperties = new UidProperties();
+			uidProperties.setWorkerIdBits((byte) (22 - sequenceBits));
+			uidProperties.setSequenceBits(sequenceBits);
+			StripedUidGenerator generator = new StripedUidGenerator(uidProperties);
+			try {
+				assertTrue(generator.packedStates().length == 1);
+				long[] uids = consume(generator);
+				Arrays.sort(uids);
+				for (int i = 1; i < uids.length; i++) {
+					assertTrue("Duplicate uid " + generator.parseUid(uids[i]), uids[i] != uids[i - 1]);
+				}
+			} finally {
+				generator.destroy();
+			}
+		}
+	}
+
+	/**
+	 * 多个线程同时获取,返回所有的uid
+	 */
+	private static long[] consume(StripedUidGenerator generator) throws Exception {
+		ExecutorService consumers = Executors.newFixedThreadPool(CONSUMERS);
+		try {
+			Future<?>[] futures = new Future<?>[CONSUMERS];
+			long[] uids = new long[CONSUMERS * UIDS_PER_CONSUMER];
+			for (int i = 0; i < CONSUMERS; i++) {
+				int from = i * UIDS_PER_CONSUMER;
+				futures[i] = consumers.submit(() -> {
+					for (int j = from; j < from + UIDS_PER_CONSUMER; j++) {
+						uids[j] = generator.getUid();
+					}
+				});
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			return uids;
+		} finally {
+			consumers.shutdownNow();
+		}
+	}
+}